@@ -1,19 +1,24 @@
 package com.etherblood.etherchess.bot;
 
 import com.etherblood.etherchess.bot.evaluation.Evaluation;
+import com.etherblood.etherchess.bot.evaluation.WoodCountEvaluation;
+import com.etherblood.etherchess.engine.CheckInfo;
 import com.etherblood.etherchess.engine.Move;
 import com.etherblood.etherchess.engine.MoveGenerator;
 import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.UndoInfo;
 import com.etherblood.etherchess.engine.table.Table;
 import com.etherblood.etherchess.engine.table.TableEntry;
 import com.etherblood.etherchess.engine.util.LongAlgebraicNotation;
-import com.etherblood.etherchess.engine.util.SquareSet;
+import com.etherblood.etherchess.engine.util.Piece;
 import com.etherblood.etherchess.uci.SearchResult;
 import com.etherblood.etherchess.uci.SearchStats;
 import com.etherblood.etherchess.uci.SearchStatsBuilder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,24 +31,74 @@ public class BotImpl {
     private static final boolean ITERATIVE_DEEPENING = true;
     // http://talkchess.com/forum3/viewtopic.php?f=7&t=74769
     private static final boolean INTERNAL_ITERATIVE_REDUCTIONS = true;
+    private static final boolean QUIESCENCE_SEARCH = true;
+    private static final boolean NULL_MOVE_PRUNING = true;
+    private static final int NULL_MOVE_MIN_DEPTH = 2;
+    // null move searches are reduced by at least this many plies, more at high depths and static evals far above beta
+    private static final int NULL_MOVE_MIN_REDUCTION = 3;
+    private static final boolean KILLER_MOVES = true;
+    private static final boolean COUNTER_MOVES = true;
+    private static final boolean HISTORY_HEURISTICS = true;
+    private static final boolean LATE_MOVE_REDUCTIONS = true;
+    private static final int LATE_MOVE_MIN_DEPTH = 3;
+    // the first moves (hash move and good captures most of the time) are always searched at full depth
+    private static final int LATE_MOVE_FULL_DEPTH_MOVES = 3;
+    // reductions by depth and move number, both capped at 63
+    private static final int[][] LATE_MOVE_REDUCTION_TABLE = new int[64][64];
 
-    private static final int UNKNOWN_BOUND = 0;
-    private static final int LOWER_BOUND = 1;
-    private static final int UPPER_BOUND = 2;
-    private static final int EXACT_BOUND = 3;
+    static {
+        for (int depth = 1; depth < 64; depth++) {
+            for (int moveNumber = 1; moveNumber < 64; moveNumber++) {
+                LATE_MOVE_REDUCTION_TABLE[depth][moveNumber] = (int) (0.5 + Math.log(depth) * Math.log(moveNumber) / 2);
+            }
+        }
+    }
+    // captures which can not raise the stand pat score this close to alpha are skipped in quiescence search
+    private static final int DELTA_MARGIN = 200;
+    // abdada only defers children of nodes with at least this depth, shallower nodes are cheaper to search twice
+    private static final int ABDADA_MIN_DEPTH = 3;
+
+    private static final int LOWER_BOUND = TableEntry.LOWER_BOUND;
+    private static final int UPPER_BOUND = TableEntry.UPPER_BOUND;
+    private static final int EXACT_BOUND = TableEntry.EXACT_BOUND;
+
+    private static final int MAX_PLY = 256;
 
     private final Table table;
     private final Evaluation eval;
     private final MoveGenerator moveGen;
+    private final BusyNodes busyNodes;
+
+    // nodes at ply startPly + i use contexts[i], nothing is allocated per node
+    private final SearchContext[] contexts = new SearchContext[MAX_PLY];
+    private final TableEntry entry = new TableEntry();
+    private final CheckInfo leafInfo = new CheckInfo();
+    // quiet refutations indexed by piece and target square of the move they refuted
+    private final int[] counterMoves = new int[(Piece.QUEEN + 1) * 64];
+    // kept between searches of the same game
+    private final MoveHistory moveHistory = new MoveHistory();
 
     private long nodes;
+    private long cutoffs;
+    private long firstMoveCutoffs;
     private int selDepth;
     private int startPly;
 
     public BotImpl(Table table, Evaluation eval, MoveGenerator moveGen) {
+        this(table, eval, moveGen, null);
+    }
+
+    /***
+     * @param busyNodes shared by cooperating searchers, children another searcher is busy with are searched last (abdada)
+     */
+    public BotImpl(Table table, Evaluation eval, MoveGenerator moveGen, BusyNodes busyNodes) {
         this.table = table;
         this.eval = eval;
         this.moveGen = moveGen;
+        this.busyNodes = busyNodes;
+        for (int i = 0; i < MAX_PLY; i++) {
+            contexts[i] = new SearchContext(moveGen, HISTORY_HEURISTICS ? moveHistory : null);
+        }
         List<String> flags = new ArrayList<>();
         if (INTERNAL_ITERATIVE_REDUCTIONS) {
             flags.add("iir");
@@ -54,31 +109,70 @@ public class BotImpl {
         if (ITERATIVE_DEEPENING) {
             flags.add("id");
         }
+        if (QUIESCENCE_SEARCH) {
+            flags.add("qs");
+        }
+        if (NULL_MOVE_PRUNING) {
+            flags.add("nmp");
+        }
+        if (KILLER_MOVES) {
+            flags.add("killers");
+        }
+        if (COUNTER_MOVES) {
+            flags.add("counters");
+        }
+        if (HISTORY_HEURISTICS) {
+            flags.add("history");
+        }
+        if (LATE_MOVE_REDUCTIONS) {
+            flags.add("lmr");
+        }
+        if (busyNodes != null) {
+            flags.add("abdada");
+        }
         flags.sort(Comparator.naturalOrder());
         LOG.info("config: " + flags.stream().collect(Collectors.joining(", ")));
     }
 
     public Move findBest(State state, HashHistory history, int depth, SearchResult result) {
+        table.newSearch();
+        return search(state, history, iteration -> true, depth, result);
+    }
+
+    /***
+     * iterative deepening up to depth, only iterations which are accepted by the filter are searched, does not start a new table search
+     * parallel searchers share the table and let their helpers skip different iterations
+     */
+    Move search(State state, HashHistory history, IntPredicate iterations, int depth, SearchResult result) {
         if (history.lastHash() != state.hash()) {
             throw new IllegalArgumentException("Last hash of history must match current state");
         }
+        depth = Math.min(depth, MAX_PLY - 1);
         nodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
         selDepth = 0;
         startPly = history.size();
+        for (SearchContext context : contexts) {
+            Arrays.fill(context.killers, Move.NONE);
+        }
+        Arrays.fill(counterMoves, Move.NONE);
+        moveHistory.age();
         Move best = null;
         long startNanos = System.nanoTime();
-        TableEntry entry = new TableEntry();
+        // moves are made and unmade on a private copy, an interrupted search may leave it in any state
+        State searchState = new State(state.zobrist);
+        searchState.copyFrom(state);
         try {
             for (int i = ITERATIVE_DEEPENING ? 1 : depth; i <= depth; i++) {
-                table.remove(state.hash());// clear root entry to ensure new entry is stored
-                int score = alphaBeta(state, history, i, -Short.MAX_VALUE, Short.MAX_VALUE);
-                if (table.load(state.hash(), entry)) {
-                    int bounds = unpackBounds(entry.raw);
-                    assert bounds == EXACT_BOUND : bounds;
-                    best = unpackMove(entry.raw);
-                } else {
-                    LOG.warn("move was not stored in table");
+                if (best != null && !iterations.test(i)) {
+                    continue;
                 }
+                int score = alphaBeta(searchState, history, i, -Short.MAX_VALUE, Short.MAX_VALUE);
+                // the root frame keeps its result, the root table entry may already be overwritten by another searcher
+                SearchContext root = contexts[0];
+                assert root.bounds == EXACT_BOUND : root.bounds;
+                best = Move.unpack32(root.bestMove);
                 long durationNanos = System.nanoTime() - startNanos;
                 SearchStatsBuilder stats = SearchStats.builder();
                 stats.depth(i);
@@ -94,24 +188,37 @@ public class BotImpl {
                 } else {
                     stats.scoreCp(score);
                 }
-                stats.pv(collectPv(state, i));
+                stats.pv(collectPv(state, best, i));
                 stats.hashPermill(table.fillPermill());
                 result.stats(stats.build());
             }
         } catch (InterruptedException e) {
-            LOG.info("search interrupted", e);
+            LOG.debug("search interrupted", e);
+        }
+        if (cutoffs != 0) {
+            result.string("first move cutoffs: " + firstMoveCutoffPermill() / 10.0 + "%");
         }
         result.bestMove(LongAlgebraicNotation.toLanString(state.isWhite, best));
         return best;
     }
 
+    private List<String> collectPv(State state, Move best, int depth) {
+        List<String> pv = new ArrayList<>();
+        pv.add(LongAlgebraicNotation.toLanString(state.isWhite, best));
+        State child = new State(state.zobrist);
+        child.copyFrom(state);
+        best.applyTo(child);
+        pv.addAll(collectPv(child, depth - 1));
+        return pv;
+    }
+
     private List<String> collectPv(State state, int depth) {
         List<String> pv = new ArrayList<>();
         TableEntry entry = new TableEntry();
         if (depth > 0 && table.load(state.hash(), entry)) {
             int bounds = unpackBounds(entry.raw);
             if (bounds == EXACT_BOUND || bounds == LOWER_BOUND) {
-                Move move = unpackMove(entry.raw);
+                Move move = Move.unpack32(unpackMove(entry.raw));
                 pv.add(LongAlgebraicNotation.toLanString(state.isWhite, move));
                 State child = new State(state.zobrist);
                 child.copyFrom(state);
@@ -123,13 +230,8 @@ public class BotImpl {
     }
 
     private int alphaBeta(State state, HashHistory history, int depth, int alpha, int beta) throws InterruptedException {
-        SearchContext context = new SearchContext();
-        context.state = state;
-        context.history = history;
-        context.depth = depth;
-        context.alpha = alpha;
-        context.beta = beta;
-        context.moves = new ArrayList<>();
+        SearchContext context = contexts[history.size() - startPly];
+        context.init(state, history, depth, alpha, beta);
         return alphaBeta(context);
     }
 
@@ -138,11 +240,8 @@ public class BotImpl {
         nodes++;
         context.isRootNode = startPly == context.ply();
         context.isPvNode = context.alpha + 1 < context.beta;
-        if (context.isPvNode) {
-            selDepth = Math.max(selDepth, context.ply());
-        }
-        moveGen.generateLegalMoves(context.state, context.moves::add);
-        if (isTerminal(context)) {
+        selDepth = Math.max(selDepth, context.ply());
+        if (isDraw(context)) {
             return context.alpha;
         }
         if (loadTable(context)) {
@@ -151,24 +250,30 @@ public class BotImpl {
         if (depthReductions(context)) {
             return context.alpha;
         }
+        if (nullMovePruning(context)) {
+            return context.alpha;
+        }
         if (context.depth >= 4 && Thread.interrupted()) {
             throw new InterruptedException();
         }
-        searchChilds(context);
+        if (!searchChilds(context)) {
+            noLegalMoves(context, context.picker.isCheck());
+            return context.alpha;
+        }
         storeTable(context);
         return context.alpha;
     }
 
-    private boolean isTerminal(SearchContext context) {
-        if (context.moves.isEmpty()) {
-            assert context.ply() != startPly;
-            if (moveGen.findOpponentCheckers(context.state) != 0) {
-                context.alpha = clamp(Scores.mateLossScore(context.ply()), context.alpha, context.beta);
-                return true;
-            }
+    private void noLegalMoves(SearchContext context, boolean isCheck) {
+        assert context.ply() != startPly;
+        if (isCheck) {
+            context.alpha = clamp(Scores.mateLossScore(context.ply()), context.alpha, context.beta);
+        } else {
             context.alpha = clamp(0, context.alpha, context.beta);
-            return true;
         }
+    }
+
+    private boolean isDraw(SearchContext context) {
         if (context.history.isDraw(context.state.fiftyMovesCounter)) {
             assert context.ply() != startPly;
             context.alpha = clamp(0, context.alpha, context.beta);
@@ -184,7 +289,6 @@ public class BotImpl {
 
     private boolean loadTable(SearchContext context) {
         long hash = context.state.hash();
-        TableEntry entry = new TableEntry();
         if (table.load(hash, entry)) {
             switch (unpackBounds(entry.raw)) {
                 case UPPER_BOUND: {
@@ -216,7 +320,7 @@ public class BotImpl {
                         }
                     }
                     context.hashMove = unpackMove(entry.raw);
-                    assert context.hashMove != null;
+                    assert context.hashMove != Move.NONE;
                     break;
                 }
                 case EXACT_BOUND: {
@@ -226,7 +330,7 @@ public class BotImpl {
                         return true;
                     }
                     context.hashMove = unpackMove(entry.raw);
-                    assert context.hashMove != null;
+                    assert context.hashMove != Move.NONE;
                     break;
                 }
                 default:
@@ -238,84 +342,342 @@ public class BotImpl {
     }
 
     private boolean depthReductions(SearchContext context) {
-        if (INTERNAL_ITERATIVE_REDUCTIONS && !context.isPvNode && context.hashMove == null) {
+        if (INTERNAL_ITERATIVE_REDUCTIONS && !context.isPvNode && context.hashMove == Move.NONE) {
             context.depth--;
         }
         if (context.depth <= 0) {
             assert context.ply() != startPly;
-            context.alpha = clamp(eval.evaluate(context.state) + context.moves.size(), context.alpha, context.beta);
+            if (QUIESCENCE_SEARCH) {
+                context.alpha = quiescence(context.state, context.history, context.alpha, context.beta);
+                return true;
+            }
+            moveGen.computeCheckInfo(context.state, leafInfo);
+            context.moveCount = moveGen.countLegalMoves(context.state, leafInfo);
+            if (context.moveCount == 0) {
+                noLegalMoves(context, leafInfo.isCheck());
+                return true;
+            }
+            context.alpha = clamp(eval.evaluate(context.state) + context.moveCount, context.alpha, context.beta);
             return true;
         }
         return false;
     }
 
-    private void searchChilds(SearchContext context) throws InterruptedException {
-        context.moves.sort(new SimpleMoveComparator(context.state, context.hashMove));
-        context.bounds = UPPER_BOUND;
-        context.bestMove = context.hashMove;
-        State child = new State(context.state.zobrist);
-        for (int moveIndex = 0; moveIndex < context.moves.size(); moveIndex++) {
-            Move move = context.moves.get(moveIndex);
-            child.copyFrom(context.state);
-            move.applyTo(child);
-            context.history.add(child.hash());
-            int score;
-            if (PRINCIPAL_VARIATION_SEARCH && context.isPvNode && context.bounds != UPPER_BOUND) {
-                score = -alphaBeta(child, context.history, context.depth - 1, -context.alpha - 1, -context.alpha);
-                if (context.alpha < score) {
-                    score = -alphaBeta(child, context.history, context.depth - 1, -context.beta, -context.alpha);
+    /***
+     * a node is pruned if passing the turn still fails high on a reduced search,
+     * not used without pieces other than pawns, where zugzwang is common and passing would be a real advantage
+     */
+    private boolean nullMovePruning(SearchContext context) throws InterruptedException {
+        if (!NULL_MOVE_PRUNING || context.isPvNode || context.depth < NULL_MOVE_MIN_DEPTH || Scores.isMateScore(context.beta)) {
+            return false;
+        }
+        assert context.ply() != startPly;
+        if (contexts[context.ply() - startPly - 1].isNullMoveSearch) {
+            return false;
+        }
+        State state = context.state;
+        if ((state.own() & ~(state.pawns() | state.kings())) == 0) {
+            return false;
+        }
+        int staticEval = eval.evaluate(state);
+        if (staticEval < context.beta || moveGen.findOpponentCheckers(state) != 0) {
+            return false;
+        }
+        int reduction = NULL_MOVE_MIN_REDUCTION + context.depth / 4 + Math.min((staticEval - context.beta) / 200, 2);
+        context.isNullMoveSearch = true;
+        Move.applyNullTo(state, context.undo);
+        context.history.addNullMove(state.hash());
+        int score = -alphaBeta(state, context.history, context.depth - 1 - reduction, -context.beta, -context.beta + 1);
+        context.history.removeLast();
+        Move.undoNull(state, context.undo);
+        context.isNullMoveSearch = false;
+        if (score >= context.beta) {
+            context.alpha = context.beta;
+            return true;
+        }
+        return false;
+    }
+
+    /***
+     * searches captures and queen promotions until the position is quiet, all evasions when in check
+     * the node itself is counted by the caller
+     */
+    private int quiescence(State state, HashHistory history, int alpha, int beta) {
+        assert history.lastHash() == state.hash();
+        int ply = history.size();
+        selDepth = Math.max(selDepth, ply);
+        if (ply - startPly == MAX_PLY - 1) {
+            return clamp(eval.evaluate(state), alpha, beta);
+        }
+        if (ply != startPly && insufficientMatingMaterial(state)) {
+            return clamp(0, alpha, beta);
+        }
+        SearchContext context = contexts[ply - startPly];
+        MovePicker picker = context.picker;
+        picker.initQuiescence(state);
+        int standPat = 0;
+        if (!picker.isCheck()) {
+            int moveCount = moveGen.countLegalMoves(state, picker.checkInfo());
+            if (moveCount == 0) {
+                return clamp(0, alpha, beta);
+            }
+            standPat = eval.evaluate(state) + moveCount;
+            if (standPat >= beta) {
+                return beta;
+            }
+            alpha = Math.max(alpha, standPat);
+        }
+        UndoInfo undo = context.undo;
+        int moveCount = 0;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            moveCount++;
+            if (!picker.isCheck()) {
+                int type = Move.unpackType(move);
+                if (type == Move.PROMOTION_ROOK || type == Move.PROMOTION_BISHOP || type == Move.PROMOTION_KNIGHT) {
+                    continue;
+                }
+                if (type != Move.PROMOTION_QUEEN && standPat + capturedScore(state, move) + DELTA_MARGIN <= alpha) {
+                    continue;
                 }
-            } else {
-                score = -alphaBeta(child, context.history, context.depth - 1, -context.beta, -context.alpha);
             }
-            context.history.removeLast();
-            assert context.alpha <= score && score <= context.beta;
-            if (score > context.alpha) {
-                if (score >= context.beta) {
-                    context.alpha = context.beta;
-                    context.bounds = LOWER_BOUND;
-                    context.bestMove = move;
-                    break;
+            Move.applyTo(move, state, undo);
+            history.add(state.hash());
+            nodes++;
+            int score = -quiescence(state, history, -beta, -alpha);
+            history.removeLast();
+            Move.undo(move, state, undo);
+            assert alpha <= score && score <= beta;
+            if (score > alpha) {
+                if (score >= beta) {
+                    return beta;
                 }
-                context.alpha = score;
-                context.bounds = EXACT_BOUND;
-                context.bestMove = move;
+                alpha = score;
             }
         }
-        assert context.ply() != startPly || context.bounds != UPPER_BOUND;
+        if (moveCount == 0 && picker.isCheck()) {
+            return clamp(Scores.mateLossScore(ply), alpha, beta);
+        }
+        return alpha;
     }
 
-    private void storeTable(SearchContext context) {
-        assert context.ply() != startPly || context.bounds != UPPER_BOUND;
-        TableEntry entry = new TableEntry();
-        entry.raw = packRaw(context.depth, context.alpha, context.bounds, context.bestMove, context.ply());
-        table.store(context.state.hash(), entry);
+    private int capturedScore(State state, int move) {
+        if (Move.unpackType(move) == Move.EN_PASSANT) {
+            return WoodCountEvaluation.PAWN_SCORE;
+        }
+        return WoodCountEvaluation.score(state.getSquarePiece(Move.unpackTo(move)));
     }
 
-    private boolean insufficientMatingMaterial(State state) {
-        if ((state.pawns() | state.rooks() | state.queens()) == 0) {
-            if (SquareSet.count(state.bishops() | state.knights()) <= 1) {
+    /***
+     * returns false if there are no legal moves
+     */
+    private boolean searchChilds(SearchContext context) throws InterruptedException {
+        MovePicker picker = context.picker;
+        picker.init(context.state, context.hashMove, context.killers[0], context.killers[1], counterMove(context),
+                previousMove(context, 1), previousMove(context, 2));
+        context.bounds = UPPER_BOUND;
+        context.bestMove = context.hashMove;
+        boolean exclusive = busyNodes != null && context.depth >= ABDADA_MIN_DEPTH;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            context.moveCount++;
+            // the first move is never deferred, the node would otherwise wait on other searchers without any bound
+            if (exclusive && context.moveCount > 1 && isBusyChild(context, move)) {
+                context.deferredMoves[context.deferredCount++] = move;
+                continue;
+            }
+            if (searchChild(context, move, exclusive)) {
                 return true;
             }
-            if (state.knights() == 0) {
-                long whiteSquareBishops = state.bishops() & SquareSet.WHITE_SQUARES;
-                if (whiteSquareBishops == 0 || whiteSquareBishops == state.bishops()) {
-                    return true;
+        }
+        for (int i = 0; i < context.deferredCount; i++) {
+            if (searchChild(context, context.deferredMoves[i], exclusive)) {
+                return true;
+            }
+        }
+        if (context.moveCount == 0) {
+            return false;
+        }
+        assert context.ply() != startPly || context.bounds != UPPER_BOUND;
+        return true;
+    }
+
+    /***
+     * returns true on a beta cutoff
+     */
+    private boolean searchChild(SearchContext context, int move, boolean exclusive) throws InterruptedException {
+        State state = context.state;
+        UndoInfo undo = context.undo;
+        boolean isQuiet = isQuiet(state, move);
+        context.currentMove = move;
+        Move.applyTo(move, state, undo);
+        long childHash = state.hash();
+        context.history.add(childHash);
+        int score;
+        if (exclusive) {
+            busyNodes.enter(childHash);
+        }
+        try {
+            score = childScore(context, isQuiet);
+        } finally {
+            // an interrupted search must not leave the node marked busy for the next search
+            if (exclusive) {
+                busyNodes.leave(childHash);
+            }
+        }
+        context.history.removeLast();
+        Move.undo(move, state, undo);
+        assert context.alpha <= score && score <= context.beta;
+        if (score > context.alpha) {
+            if (score >= context.beta) {
+                context.alpha = context.beta;
+                context.bounds = LOWER_BOUND;
+                context.bestMove = move;
+                cutoffs++;
+                if (context.moveCount == 1) {
+                    firstMoveCutoffs++;
                 }
+                if (isQuiet) {
+                    storeQuietCutoff(context, move);
+                }
+                return true;
             }
+            context.alpha = score;
+            context.bounds = EXACT_BOUND;
+            context.bestMove = move;
+        }
+        if (isQuiet) {
+            context.searchedQuiets[context.searchedQuietCount++] = move;
         }
         return false;
     }
 
-    private long packRaw(int depth, int score, int bounds, Move move, int ply) {
+    /***
+     * childScore, reducedSearch and fullDepthSearch are package-private so tests can observe re-searches
+     */
+    int childScore(SearchContext context, boolean isQuiet) throws InterruptedException {
+        int reduction = isQuiet ? lateMoveReduction(context) : 0;
+        if (reduction > 0) {
+            int score = reducedSearch(context, reduction);
+            if (score <= context.alpha) {
+                return score;
+            }
+            // a reduced move which beats alpha is verified at full depth, the reduced score is discarded
+        }
+        return fullDepthSearch(context);
+    }
+
+    /***
+     * null window search of a late quiet move, reduced by the given number of plies
+     */
+    int reducedSearch(SearchContext context, int reduction) throws InterruptedException {
+        return -alphaBeta(context.state, context.history, context.depth - 1 - reduction, -context.alpha - 1, -context.alpha);
+    }
+
+    private void storeQuietCutoff(SearchContext context, int move) {
+        if (KILLER_MOVES && context.killers[0] != move) {
+            context.killers[1] = context.killers[0];
+            context.killers[0] = move;
+        }
+        int previous = previousMove(context, 1);
+        if (COUNTER_MOVES && previous != Move.NONE) {
+            counterMoves[counterIndex(previous)] = move;
+        }
+        if (HISTORY_HEURISTICS) {
+            int previous2 = previousMove(context, 2);
+            int bonus = MoveHistory.bonus(context.depth);
+            moveHistory.update(move, previous, previous2, bonus);
+            for (int i = 0; i < context.searchedQuietCount; i++) {
+                moveHistory.update(context.searchedQuiets[i], previous, previous2, -bonus);
+            }
+        }
+    }
+
+    private int counterMove(SearchContext context) {
+        int previous = previousMove(context, 1);
+        if (!COUNTER_MOVES || previous == Move.NONE) {
+            return Move.NONE;
+        }
+        return counterMoves[counterIndex(previous)];
+    }
+
+    /***
+     * the move made the given number of plies before this node, Move.NONE before the root and for null moves
+     */
+    private int previousMove(SearchContext context, int plies) {
+        int index = context.ply() - startPly - plies;
+        if (index < 0) {
+            return Move.NONE;
+        }
+        return contexts[index].currentMove;
+    }
+
+    private static int counterIndex(int move) {
+        return Move.unpackPiece(move) * 64 + Move.unpackTo(move);
+    }
+
+    int fullDepthSearch(SearchContext context) throws InterruptedException {
+        State state = context.state;
+        if (PRINCIPAL_VARIATION_SEARCH && context.isPvNode && context.bounds != UPPER_BOUND) {
+            int score = -alphaBeta(state, context.history, context.depth - 1, -context.alpha - 1, -context.alpha);
+            if (context.alpha < score) {
+                score = -alphaBeta(state, context.history, context.depth - 1, -context.beta, -context.alpha);
+            }
+            return score;
+        }
+        return -alphaBeta(state, context.history, context.depth - 1, -context.beta, -context.alpha);
+    }
+
+    private static boolean isQuiet(State state, int move) {
+        int type = Move.unpackType(move);
+        return (type == Move.DEFAULT || type == Move.DOUBLE || type == Move.CASTLING)
+                && state.getSquarePiece(Move.unpackTo(move)) == Piece.EMPTY;
+    }
+
+    /***
+     * reduction of a quiet move which was already applied to the state, late moves rarely raise alpha
+     */
+    private int lateMoveReduction(SearchContext context) {
+        if (!LATE_MOVE_REDUCTIONS
+                || context.depth < LATE_MOVE_MIN_DEPTH
+                || context.moveCount <= LATE_MOVE_FULL_DEPTH_MOVES
+                || context.picker.isCheck()
+                || moveGen.findOpponentCheckers(context.state) != 0) {
+            return 0;
+        }
+        int reduction = LATE_MOVE_REDUCTION_TABLE[Math.min(context.depth, 63)][Math.min(context.moveCount, 63)];
+        if (context.isPvNode) {
+            reduction--;
+        }
+        return Math.max(0, Math.min(reduction, context.depth - 2));
+    }
+
+    private boolean isBusyChild(SearchContext context, int move) {
+        Move.applyTo(move, context.state, context.undo);
+        boolean busy = busyNodes.isBusy(context.state.hash());
+        Move.undo(move, context.state, context.undo);
+        return busy;
+    }
+
+    private void storeTable(SearchContext context) {
+        assert context.ply() != startPly || context.bounds != UPPER_BOUND;
+        entry.raw = packRaw(context.depth, context.alpha, context.bounds, context.bestMove, context.ply());
+        table.store(context.state.hash(), entry);
+    }
+
+    private boolean insufficientMatingMaterial(State state) {
+        return InsufficientMaterial.isInsufficient(state.materialSignature());
+    }
+
+    private long packRaw(int depth, int score, int bounds, int move, int ply) {
         short tableScore = Scores.toTableScore(score, ply);
         assert Scores.fromTableScore(tableScore, ply) == score;
-        assert (bounds & 0xf) == bounds;
-        assert (depth & 0xfff) == depth;
-        long raw = ((tableScore & 0xffffL) << 16) | ((bounds & 0xfL) << 12) | (depth & 0xfffL);
-        if (move != null) {
-            raw |= (Move.pack32(move) & 0xffffffffL) << 32;
-            assert unpackMove(raw).equals(move);
+        assert (bounds & EXACT_BOUND) == bounds;
+        assert (depth & TableEntry.MAX_DEPTH) == depth;
+        long raw = ((tableScore & 0xffffL) << 16) | ((long) bounds << TableEntry.BOUNDS_SHIFT) | depth;
+        if (move != Move.NONE) {
+            raw |= (move & 0xffffffffL) << 32;
+            assert unpackMove(raw) == move;
         }
         assert unpackBounds(raw) == bounds;
         assert unpackDepth(raw) == depth;
@@ -324,7 +686,7 @@ public class BotImpl {
     }
 
     private int unpackDepth(long raw) {
-        return (short) raw & 0xfff;
+        return TableEntry.depth(raw);
     }
 
     private int unpackScore(long raw, int ply) {
@@ -332,11 +694,11 @@ public class BotImpl {
     }
 
     private int unpackBounds(long raw) {
-        return (int) (raw >>> 12) & 0xf;
+        return TableEntry.bounds(raw);
     }
 
-    private Move unpackMove(long raw) {
-        return Move.unpack32((int) (raw >>> 32));
+    private int unpackMove(long raw) {
+        return TableEntry.move(raw);
     }
 
     private int clamp(int score, int alpha, int beta) {
@@ -349,6 +711,31 @@ public class BotImpl {
         return score;
     }
 
+    /***
+     * nodes of the current or last search, may lag behind when read by another thread
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    /***
+     * share of beta cutoffs caused by the first searched move, a measure of the move ordering quality
+     */
+    public int firstMoveCutoffPermill() {
+        return cutoffs == 0 ? 0 : (int) (1000 * firstMoveCutoffs / cutoffs);
+    }
+
+    /***
+     * histories are only useful within the same game
+     */
+    public void newGame() {
+        moveHistory.clear();
+    }
+
+    void resetNodes() {
+        nodes = 0;
+    }
+
     public Table getTable() {
         return table;
     }
@@ -0,0 +1,37 @@
+package com.etherblood.etherchess.bot;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/***
+ * hashes of nodes which some searcher is currently working on, shared by all searchers of an abdada search
+ * a lossy set: colliding nodes overwrite each other, so a lookup may miss a busy node
+ * this only costs some duplicated work, it never affects the correctness of the search
+ */
+public class BusyNodes {
+
+    private static final long EMPTY = 0;
+
+    private final AtomicLongArray hashes;
+    private final int mask;
+
+    public BusyNodes(int logSize) {
+        hashes = new AtomicLongArray(1 << logSize);
+        mask = (1 << logSize) - 1;
+    }
+
+    public boolean isBusy(long hash) {
+        return hashes.getOpaque(index(hash)) == hash;
+    }
+
+    public void enter(long hash) {
+        hashes.setOpaque(index(hash), hash);
+    }
+
+    public void leave(long hash) {
+        hashes.compareAndExchange(index(hash), hash, EMPTY);
+    }
+
+    private int index(long hash) {
+        return (int) (hash >>> 32) & mask;
+    }
+}
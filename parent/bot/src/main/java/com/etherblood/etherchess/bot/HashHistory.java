@@ -5,15 +5,27 @@ import java.util.Arrays;
 public class HashHistory {
     private int next;
     private long[] hashes = new long[64];
+    // index of the oldest entry a position can repeat, positions before a null move can not be repeated after it
+    private int[] repetitionStarts = new int[64];
 
     public HashHistory(long initialHash) {
         reset(initialHash);
     }
 
     public void add(long hash) {
+        add(hash, next == 0 ? 0 : repetitionStarts[next - 1]);
+    }
+
+    public void addNullMove(long hash) {
+        add(hash, next);
+    }
+
+    private void add(long hash, int repetitionStart) {
         if (next == hashes.length) {
             hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+            repetitionStarts = Arrays.copyOf(repetitionStarts, 2 * repetitionStarts.length);
         }
+        repetitionStarts[next] = repetitionStart;
         hashes[next++] = hash;
     }
 
@@ -22,7 +34,8 @@ public class HashHistory {
             return true;
         }
         long hash = lastHash();
-        int limit = next - fiftyCounter;
+        // the position fiftyCounter plies back is the first one after an irreversible move
+        int limit = Math.max(next - 1 - fiftyCounter, repetitionStarts[next - 1]);
         for (int i = next - 5; i >= limit; i -= 2) {
             if (hashes[i] == hash) {
                 return true;
@@ -43,6 +56,16 @@ public class HashHistory {
         return next;
     }
 
+    public void copyFrom(HashHistory other) {
+        if (hashes.length < other.next) {
+            hashes = new long[other.hashes.length];
+            repetitionStarts = new int[other.hashes.length];
+        }
+        System.arraycopy(other.hashes, 0, hashes, 0, other.next);
+        System.arraycopy(other.repetitionStarts, 0, repetitionStarts, 0, other.next);
+        next = other.next;
+    }
+
     public void reset(long initialHash) {
         next = 0;
         add(initialHash);
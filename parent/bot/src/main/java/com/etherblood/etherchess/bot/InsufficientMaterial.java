@@ -0,0 +1,55 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.engine.util.MaterialSignature;
+
+/***
+ * lookup table of material signatures (see MaterialSignature) where neither side can mate
+ * pawns, rooks and queens are never insufficient, the remaining minor piece counts are capped at 3 to index the table
+ */
+public class InsufficientMaterial {
+
+    private static final long PAWNS_ROOKS_QUEENS_MASK = fieldMask(MaterialSignature.PAWNS) | fieldMask(MaterialSignature.ROOKS) | fieldMask(MaterialSignature.QUEENS);
+    private static final int[] MINOR_FIELDS = {
+            MaterialSignature.KNIGHTS,
+            MaterialSignature.WHITE_SQUARE_BISHOPS,
+            MaterialSignature.BLACK_SQUARE_BISHOPS,
+            MaterialSignature.OPP_SHIFT + MaterialSignature.KNIGHTS,
+            MaterialSignature.OPP_SHIFT + MaterialSignature.WHITE_SQUARE_BISHOPS,
+            MaterialSignature.OPP_SHIFT + MaterialSignature.BLACK_SQUARE_BISHOPS
+    };
+    private static final boolean[] TABLE = new boolean[1 << (2 * MINOR_FIELDS.length)];
+
+    static {
+        for (int index = 0; index < TABLE.length; index++) {
+            int knights = 0;
+            int whiteSquareBishops = 0;
+            int blackSquareBishops = 0;
+            for (int side = 0; side < 2; side++) {
+                knights += (index >>> (6 * side)) & 3;
+                whiteSquareBishops += (index >>> (6 * side + 2)) & 3;
+                blackSquareBishops += (index >>> (6 * side + 4)) & 3;
+            }
+            if (knights + whiteSquareBishops + blackSquareBishops <= 1) {
+                TABLE[index] = true;
+            } else if (knights == 0 && (whiteSquareBishops == 0 || blackSquareBishops == 0)) {
+                TABLE[index] = true;
+            }
+        }
+    }
+
+    public static boolean isInsufficient(long materialSignature) {
+        if ((materialSignature & PAWNS_ROOKS_QUEENS_MASK) != 0) {
+            return false;
+        }
+        int index = 0;
+        for (int i = 0; i < MINOR_FIELDS.length; i++) {
+            int count = (int) (materialSignature >>> MINOR_FIELDS[i]) & 0xf;
+            index |= Math.min(count, 3) << (2 * i);
+        }
+        return TABLE[index];
+    }
+
+    private static long fieldMask(int field) {
+        return (0xfL << field) | (0xfL << (MaterialSignature.OPP_SHIFT + field));
+    }
+}
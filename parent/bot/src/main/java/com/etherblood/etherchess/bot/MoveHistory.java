@@ -0,0 +1,94 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.util.Piece;
+import java.util.Arrays;
+
+/***
+ * quiet move scores learned from beta cutoffs, owned by a single searcher
+ * butterfly history is indexed by from and to square, continuation histories by piece and to square of the move 1 (or 2) plies earlier and of the move itself
+ * squares are relative to the side to move, like everything else in the state
+ * <p>
+ * updates are bounded (gravity), entries approach +-MAX_SCORE and the closer they get the smaller the change
+ */
+public class MoveHistory {
+
+    public static final int MAX_SCORE = 16384;
+    private static final int MAX_BONUS = MAX_SCORE / 4;
+    private static final int PIECE_SQUARES = (Piece.QUEEN + 1) * 64;
+
+    private final short[] butterfly = new short[64 * 64];
+    // [previous piece][previous to][piece][to], the moves of a node are scored within a single slice of 768 bytes
+    private final short[] continuation1 = new short[PIECE_SQUARES * PIECE_SQUARES];
+    private final short[] continuation2 = new short[PIECE_SQUARES * PIECE_SQUARES];
+
+    /***
+     * previous moves are Move.NONE when unknown (root or null move), their continuation history is skipped
+     */
+    public int score(int move, int previous1, int previous2) {
+        int score = butterfly[butterflyIndex(move)];
+        int pieceSquare = pieceSquare(move);
+        if (previous1 != Move.NONE) {
+            score += continuation1[pieceSquare(previous1) * PIECE_SQUARES + pieceSquare];
+        }
+        if (previous2 != Move.NONE) {
+            score += continuation2[pieceSquare(previous2) * PIECE_SQUARES + pieceSquare];
+        }
+        return score;
+    }
+
+    /***
+     * a positive bonus for moves causing a cutoff, a negative one for quiets which were searched before without
+     */
+    public void update(int move, int previous1, int previous2, int bonus) {
+        assert Math.abs(bonus) <= MAX_BONUS : bonus;
+        update(butterfly, butterflyIndex(move), bonus);
+        int pieceSquare = pieceSquare(move);
+        if (previous1 != Move.NONE) {
+            update(continuation1, pieceSquare(previous1) * PIECE_SQUARES + pieceSquare, bonus);
+        }
+        if (previous2 != Move.NONE) {
+            update(continuation2, pieceSquare(previous2) * PIECE_SQUARES + pieceSquare, bonus);
+        }
+    }
+
+    public static int bonus(int depth) {
+        return Math.min(16 * depth * depth, MAX_BONUS);
+    }
+
+    /***
+     * halves all scores, knowledge from previous searches of the same game is still useful but less reliable
+     */
+    public void age() {
+        age(butterfly);
+        age(continuation1);
+        age(continuation2);
+    }
+
+    public void clear() {
+        Arrays.fill(butterfly, (short) 0);
+        Arrays.fill(continuation1, (short) 0);
+        Arrays.fill(continuation2, (short) 0);
+    }
+
+    private static void update(short[] scores, int index, int bonus) {
+        int score = scores[index];
+        score += bonus - score * Math.abs(bonus) / MAX_SCORE;
+        assert Math.abs(score) <= MAX_SCORE : score;
+        scores[index] = (short) score;
+    }
+
+    private static void age(short[] scores) {
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] /= 2;
+        }
+    }
+
+    private static int butterflyIndex(int move) {
+        return Move.unpackFrom(move) * 64 + Move.unpackTo(move);
+    }
+
+    private static int pieceSquare(int move) {
+        return Move.unpackPiece(move) * 64 + Move.unpackTo(move);
+    }
+}
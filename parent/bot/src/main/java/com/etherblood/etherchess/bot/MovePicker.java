@@ -0,0 +1,229 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.engine.CheckInfo;
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+
+/***
+ * yields the hash move, then captures, then quiets, then captures losing material by static exchange evaluation
+ * quiets start with the killer moves and the counter move (if they are legal here),
+ * the rest is ordered by move history, moves with equal history keep the comparator order
+ * each stage is only generated once it is reached, when in check all evasions are generated at once instead
+ * a legal hash move is picked before anything is generated
+ * the quiescence mode stops after the captures and drops the losing ones (evasions are still complete)
+ */
+public class MovePicker {
+
+    private static final int STAGE_HASH = 0;
+    private static final int STAGE_CAPTURES = 1;
+    private static final int STAGE_QUIETS = 2;
+    private static final int STAGE_BAD_CAPTURES = 3;
+    private static final int STAGE_EVASIONS = 4;
+    private static final int STAGE_DONE = 5;
+
+    private static final int NOT_GENERATED = -1;
+
+    private final MoveGenerator moveGen;
+    private final StaticExchangeEvaluation see;
+    private final MoveHistory history;
+    private final CheckInfo info = new CheckInfo();
+    // evasions are stored in the captures buffer
+    private final int[] captures = new int[MoveGenerator.MAX_MOVES];
+    private final int[] quiets = new int[MoveGenerator.MAX_MOVES];
+    private final int[] quietScores = new int[MoveGenerator.MAX_MOVES];
+    private final int[] badCaptures = new int[MoveGenerator.MAX_MOVES];
+
+    private State state;
+    private int hashMove;
+    private final int[] preferredQuiets = new int[3];
+    private int previousMove1;
+    private int previousMove2;
+    private boolean capturesOnly;
+    private final SimpleMoveComparator comparator = new SimpleMoveComparator();
+    private int stage;
+    private int index;
+    private int captureCount;
+    private int quietCount;
+    private int badCaptureCount;
+
+    public MovePicker(MoveGenerator moveGen) {
+        this(moveGen, null);
+    }
+
+    public MovePicker(MoveGenerator moveGen, MoveHistory history) {
+        this.moveGen = moveGen;
+        this.see = new StaticExchangeEvaluation(moveGen);
+        this.history = history;
+    }
+
+    public void init(State state, int hashMove) {
+        init(state, hashMove, Move.NONE, Move.NONE, Move.NONE, Move.NONE, Move.NONE);
+    }
+
+    /***
+     * previous moves (1 and 2 plies earlier) select the continuation histories, Move.NONE if unknown
+     */
+    public void init(State state, int hashMove, int killer1, int killer2, int counterMove, int previousMove1, int previousMove2) {
+        preferredQuiets[0] = killer1;
+        preferredQuiets[1] = killer2;
+        preferredQuiets[2] = counterMove;
+        this.previousMove1 = previousMove1;
+        this.previousMove2 = previousMove2;
+        init(state, hashMove, false);
+    }
+
+    public void initQuiescence(State state) {
+        init(state, Move.NONE, true);
+    }
+
+    private void init(State state, int hashMove, boolean capturesOnly) {
+        this.state = state;
+        this.hashMove = hashMove;
+        this.capturesOnly = capturesOnly;
+        moveGen.computeCheckInfo(state, info);
+        comparator.init(state, hashMove);
+        stage = STAGE_HASH;
+        index = 0;
+        captureCount = NOT_GENERATED;
+        quietCount = NOT_GENERATED;
+        badCaptureCount = 0;
+    }
+
+    public boolean isCheck() {
+        return info.isCheck();
+    }
+
+    public CheckInfo checkInfo() {
+        return info;
+    }
+
+    /***
+     * returns the next legal move or Move.NONE when all moves were picked
+     */
+    public int next() {
+        while (true) {
+            switch (stage) {
+                case STAGE_HASH:
+                    stage = info.isCheck() ? STAGE_EVASIONS : STAGE_CAPTURES;
+                    // the hash move may come from a different position with the same hash
+                    if (hashMove != Move.NONE && moveGen.isLegal(state, info, hashMove)) {
+                        return hashMove;
+                    }
+                    break;
+                case STAGE_CAPTURES:
+                    generateCaptures();
+                    while (index < captureCount) {
+                        int move = captures[index++];
+                        if (move == hashMove) {
+                            continue;
+                        }
+                        if (!see.seeGreaterEqual(state, move, 0)) {
+                            badCaptures[badCaptureCount++] = move;
+                            continue;
+                        }
+                        return move;
+                    }
+                    stage = capturesOnly ? STAGE_DONE : STAGE_QUIETS;
+                    index = 0;
+                    break;
+                case STAGE_QUIETS:
+                    generateQuiets();
+                    while (index < quietCount) {
+                        int move = quiets[index++];
+                        if (move != hashMove) {
+                            return move;
+                        }
+                    }
+                    stage = STAGE_BAD_CAPTURES;
+                    index = 0;
+                    break;
+                case STAGE_BAD_CAPTURES:
+                    if (index < badCaptureCount) {
+                        return badCaptures[index++];
+                    }
+                    stage = STAGE_DONE;
+                    break;
+                case STAGE_EVASIONS:
+                    generateEvasions();
+                    while (index < captureCount) {
+                        int move = captures[index++];
+                        if (move != hashMove) {
+                            return move;
+                        }
+                    }
+                    stage = STAGE_DONE;
+                    break;
+                case STAGE_DONE:
+                    return Move.NONE;
+                default:
+                    throw new AssertionError(stage);
+            }
+        }
+    }
+
+    private void generateCaptures() {
+        if (captureCount == NOT_GENERATED) {
+            captureCount = moveGen.generateCaptures(state, info, captures);
+            comparator.sort(captures, captureCount);
+        }
+    }
+
+    private void generateQuiets() {
+        if (quietCount == NOT_GENERATED) {
+            quietCount = moveGen.generateQuiets(state, info, quiets);
+            comparator.sort(quiets, quietCount);
+            if (history != null) {
+                sortByHistory();
+            }
+            int front = 0;
+            for (int preferred : preferredQuiets) {
+                if (preferred != Move.NONE && moveToFront(quiets, front, quietCount, preferred)) {
+                    front++;
+                }
+            }
+        }
+    }
+
+    /***
+     * stable insertion sort by descending score, like the comparator sort
+     */
+    private void sortByHistory() {
+        for (int i = 0; i < quietCount; i++) {
+            quietScores[i] = history.score(quiets[i], previousMove1, previousMove2);
+        }
+        for (int i = 1; i < quietCount; i++) {
+            int move = quiets[i];
+            int score = quietScores[i];
+            int j = i - 1;
+            while (j >= 0 && quietScores[j] < score) {
+                quiets[j + 1] = quiets[j];
+                quietScores[j + 1] = quietScores[j];
+                j--;
+            }
+            quiets[j + 1] = move;
+            quietScores[j + 1] = score;
+        }
+    }
+
+    /***
+     * moves come from other positions, so they are only picked if they were generated for this one
+     */
+    private static boolean moveToFront(int[] moves, int front, int count, int move) {
+        for (int i = front; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, front, moves, front + 1, i - front);
+                moves[front] = move;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void generateEvasions() {
+        if (captureCount == NOT_GENERATED) {
+            captureCount = moveGen.generateEvasions(state, info, captures);
+            comparator.sort(captures, captureCount);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.bot.evaluation.Evaluation;
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.table.Table;
+import com.etherblood.etherchess.uci.SearchResult;
+import com.etherblood.etherchess.uci.SearchStats;
+import java.util.function.IntPredicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/***
+ * lazy smp: helper searchers run the same iterative deepening on private copies of the position,
+ * they only cooperate through the shared (thread safe) table
+ * abdada: additionally all searchers work on the same iteration and defer children another searcher is busy with,
+ * so they spread over the siblings instead of searching the same subtree (see BusyNodes)
+ * <p>
+ * the main searcher runs on the calling thread, reports the results and stops the helpers once it is done
+ * helper threads are started per search, their startup cost is negligible compared to a search
+ */
+public class ParallelSearch {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelSearch.class);
+    private static final int BUSY_NODES_LOG_SIZE = 16;
+    // lazy smp helper i searches iterations in blocks of SKIP_SIZE[i % 20] and skips every other block, shifted by SKIP_PHASE[i % 20]
+    private static final int[] SKIP_SIZE = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+    private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+    public enum Mode {
+        LAZY_SMP,
+        ABDADA;
+
+        public static final String PROPERTY = "etherchess.smp";
+
+        /***
+         * picks the mode from the system property 'etherchess.smp' ("lazysmp" or "abdada"), lazy smp is the default
+         */
+        public static Mode fromSystemProperty() {
+            String name = System.getProperty(PROPERTY, "lazysmp");
+            return switch (name) {
+                case "lazysmp" -> LAZY_SMP;
+                case "abdada" -> ABDADA;
+                default -> throw new IllegalArgumentException("Unknown " + PROPERTY + ": " + name);
+            };
+        }
+    }
+
+    private final Table table;
+    private final Mode mode;
+    private final BusyNodes busyNodes;
+    private final BotImpl[] bots;
+    private final State[] states;
+    private final HashHistory[] histories;
+    private final Thread[] helpers;
+
+    public ParallelSearch(Table table, Evaluation eval, MoveGenerator moveGen, int threads) {
+        this(table, eval, moveGen, threads, Mode.LAZY_SMP);
+    }
+
+    public ParallelSearch(Table table, Evaluation eval, MoveGenerator moveGen, int threads, Mode mode) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required, was " + threads + ".");
+        }
+        this.table = table;
+        this.mode = mode;
+        busyNodes = mode == Mode.ABDADA ? new BusyNodes(BUSY_NODES_LOG_SIZE) : null;
+        bots = new BotImpl[threads];
+        states = new State[threads];
+        histories = new HashHistory[threads];
+        for (int i = 0; i < threads; i++) {
+            bots[i] = new BotImpl(table, eval, moveGen, busyNodes);
+            histories[i] = new HashHistory(0);
+        }
+        helpers = new Thread[threads];
+    }
+
+    public Move findBest(State state, HashHistory history, int depth, SearchResult result) {
+        table.newSearch();
+        for (int i = 1; i < bots.length; i++) {
+            if (states[i] == null) {
+                states[i] = new State(state.zobrist);
+            }
+            states[i].copyFrom(state);
+            histories[i].copyFrom(history);
+            // reported nodes sum over all bots, a helper thread may not have started (and reset its own count) before the first report
+            bots[i].resetNodes();
+            helpers[i] = new Thread(helperSearch(i, depth), "search-helper-" + i);
+            helpers[i].setDaemon(true);
+            helpers[i].setUncaughtExceptionHandler((thread, e) -> LOG.error("Helper search failed.", e));
+            helpers[i].start();
+        }
+        try {
+            return bots[0].search(state, history, iteration -> true, depth, new SearchResult() {
+                @Override
+                public void stats(SearchStats stats) {
+                    result.stats(new SearchStats(
+                            stats.depth(),
+                            stats.seldepth(),
+                            stats.scoreCp(),
+                            stats.scoreMate(),
+                            stats.hashPermill(),
+                            nodes(),
+                            stats.millis(),
+                            stats.pv()));
+                }
+
+                @Override
+                public void bestMove(String lanMove) {
+                    result.bestMove(lanMove);
+                }
+
+                @Override
+                public void string(String string) {
+                    result.string(string);
+                }
+            });
+        } finally {
+            stopHelpers();
+        }
+    }
+
+    private Runnable helperSearch(int index, int depth) {
+        BotImpl bot = bots[index];
+        State state = states[index];
+        HashHistory history = histories[index];
+        IntPredicate iterations = mode == Mode.LAZY_SMP ? iteration -> isHelperIteration(index, iteration) : iteration -> true;
+        return () -> bot.search(state, history, iterations, depth, new NoopSearchResult());
+    }
+
+    /***
+     * with lazy smp helpers skip iterations, so they spread over the next depths instead of all searching the same one
+     * e.g. helper 1 searches even, helper 2 odd and helpers 3 to 6 every other pair of iterations
+     */
+    static boolean isHelperIteration(int index, int iteration) {
+        int i = (index - 1) % SKIP_SIZE.length;
+        return ((iteration + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 == 0;
+    }
+
+    private void stopHelpers() {
+        for (int i = 1; i < helpers.length; i++) {
+            helpers[i].interrupt();
+        }
+        // helpers catch their interrupt and return, the next search must not start before they do
+        boolean interrupted = false;
+        for (int i = 1; i < helpers.length; i++) {
+            while (helpers[i].isAlive()) {
+                try {
+                    helpers[i].join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            helpers[i] = null;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long nodes() {
+        long sum = 0;
+        for (BotImpl bot : bots) {
+            sum += bot.nodes();
+        }
+        return sum;
+    }
+
+    public void newGame() {
+        for (BotImpl bot : bots) {
+            bot.newGame();
+        }
+    }
+
+    /***
+     * move ordering quality of the main searcher
+     */
+    public int firstMoveCutoffPermill() {
+        return bots[0].firstMoveCutoffPermill();
+    }
+
+    public int threads() {
+        return bots.length;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+}
@@ -1,10 +1,17 @@
 package com.etherblood.etherchess.bot;
 
 import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
 import com.etherblood.etherchess.engine.State;
-import java.util.List;
+import com.etherblood.etherchess.engine.UndoInfo;
 
+/***
+ * search frame of a single ply, frames are allocated once per bot and reused for every node at their ply
+ */
 public class SearchContext {
+    public final UndoInfo undo = new UndoInfo();
+    public final MovePicker picker;
+
     public State state;
     public HashHistory history;
 
@@ -13,13 +20,47 @@ public class SearchContext {
     public int beta;
     public boolean isRootNode;
     public boolean isPvNode;
+    public boolean isNullMoveSearch;
 
-    public Move hashMove;
-    public List<Move> moves;
+    public int hashMove;
+    // the move currently searched, children use it to look up counter moves
+    public int currentMove;
+    public int moveCount;
+    // moves which another searcher was busy with, see BusyNodes
+    public final int[] deferredMoves = new int[MoveGenerator.MAX_MOVES];
+    public int deferredCount;
+    // quiet moves which did not cause a cutoff, their history is lowered once another move does
+    public final int[] searchedQuiets = new int[MoveGenerator.MAX_MOVES];
+    public int searchedQuietCount;
 
-    public Move bestMove;
+    public int bestMove;
     public int bounds;
 
+    // quiet moves which caused cutoffs at this ply, kept across nodes and cleared per search
+    public final int[] killers = new int[2];
+
+    public SearchContext(MoveGenerator moveGen, MoveHistory moveHistory) {
+        picker = new MovePicker(moveGen, moveHistory);
+    }
+
+    public void init(State state, HashHistory history, int depth, int alpha, int beta) {
+        this.state = state;
+        this.history = history;
+        this.depth = depth;
+        this.alpha = alpha;
+        this.beta = beta;
+        isRootNode = false;
+        isPvNode = false;
+        isNullMoveSearch = false;
+        hashMove = Move.NONE;
+        currentMove = Move.NONE;
+        moveCount = 0;
+        deferredCount = 0;
+        searchedQuietCount = 0;
+        bestMove = Move.NONE;
+        bounds = 0;
+    }
+
     public int ply() {
         return history.size();
     }
@@ -3,47 +3,64 @@ package com.etherblood.etherchess.bot;
 import com.etherblood.etherchess.bot.evaluation.PieceSquareTable;
 import com.etherblood.etherchess.engine.Move;
 import com.etherblood.etherchess.engine.State;
-import java.util.Comparator;
 
-public class SimpleMoveComparator implements Comparator<Move> {
+public class SimpleMoveComparator {
 
-    private final State state;
-    private final Move hashMove;
+    private State state;
+    private int hashMove;
 
-    public SimpleMoveComparator(State state, Move hashMove) {
+    public void init(State state, int hashMove) {
         this.state = state;
         this.hashMove = hashMove;
     }
 
-    @Override
-    public int compare(Move a, Move b) {
-        if (a.equals(b)) {
+    /***
+     * stable insertion sort of the packed moves, the move lists are too short for anything fancier to pay off
+     */
+    public void sort(int[] moves, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int j = i - 1;
+            while (j >= 0 && compare(moves[j], move) > 0) {
+                moves[j + 1] = moves[j];
+                j--;
+            }
+            moves[j + 1] = move;
+        }
+    }
+
+    public int compare(int a, int b) {
+        if (a == b) {
             throw new AssertionError();
         }
-        if (a.equals(hashMove)) {
+        if (a == hashMove) {
             return -1;
         }
-        if (b.equals(hashMove)) {
+        if (b == hashMove) {
             return 1;
         }
-        int captureA = state.getSquarePiece(a.to());
-        int captureB = state.getSquarePiece(b.to());
+        int toA = Move.unpackTo(a);
+        int toB = Move.unpackTo(b);
+        int fromA = Move.unpackFrom(a);
+        int fromB = Move.unpackFrom(b);
+        int captureA = state.getSquarePiece(toA);
+        int captureB = state.getSquarePiece(toB);
         int comparison = -Integer.compare(
-                PieceSquareTable.score(captureA, a.to()),
-                PieceSquareTable.score(captureB, b.to()));
+                PieceSquareTable.score(captureA, toA),
+                PieceSquareTable.score(captureB, toB));
         if (comparison != 0) {
             return comparison;
         }
-        int pieceA = state.getSquarePiece(a.from());
-        int pieceB = state.getSquarePiece(b.from());
+        int pieceA = Move.unpackPiece(a);
+        int pieceB = Move.unpackPiece(b);
         comparison = Integer.compare(
-                PieceSquareTable.score(pieceA, a.from()),
-                PieceSquareTable.score(pieceB, b.from()));
+                PieceSquareTable.score(pieceA, fromA),
+                PieceSquareTable.score(pieceB, fromB));
         if (comparison != 0) {
             return comparison;
         }
         return -Integer.compare(
-                PieceSquareTable.score(pieceA, a.to()) - PieceSquareTable.score(pieceA, a.from()),
-                PieceSquareTable.score(pieceB, b.to()) - PieceSquareTable.score(pieceB, b.from()));
+                PieceSquareTable.score(pieceA, toA) - PieceSquareTable.score(pieceA, fromA),
+                PieceSquareTable.score(pieceB, toB) - PieceSquareTable.score(pieceB, fromB));
     }
 }
@@ -0,0 +1,177 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.bot.evaluation.WoodCountEvaluation;
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.util.Piece;
+import com.etherblood.etherchess.engine.util.PieceSquareSet;
+import com.etherblood.etherchess.engine.util.SquareSet;
+
+/***
+ * material balance of the capture sequence started by a move on its target square
+ * both sides recapture with their least valuable attacker and may stop whenever that suits them
+ * pins and promotions while recapturing are ignored
+ */
+public class StaticExchangeEvaluation {
+
+    private static final int[] LEAST_VALUABLE_FIRST = {Piece.PAWN, Piece.KNIGHT, Piece.BISHOP, Piece.ROOK, Piece.QUEEN, Piece.KING};
+
+    private final MoveGenerator moveGen;
+    private final int[] gains = new int[32];
+
+    public StaticExchangeEvaluation(MoveGenerator moveGen) {
+        this.moveGen = moveGen;
+    }
+
+    public int see(State state, int move) {
+        int to = Move.unpackTo(move);
+        long occupied = occupiedAfter(state, move);
+        long attackers = moveGen.findAllAttackers(state, to, occupied) & occupied;
+        long sideMask = state.opp();
+        long otherMask = state.own();
+        int targetScore = movedScore(move);
+        int depth = 0;
+        gains[0] = capturedScore(state, move);
+        while (true) {
+            long sideAttackers = attackers & sideMask;
+            if (sideAttackers == 0) {
+                break;
+            }
+            int piece = leastValuablePiece(state, sideAttackers);
+            if (piece == Piece.KING && (attackers & otherMask) != 0) {
+                break;
+            }
+            depth++;
+            gains[depth] = targetScore - gains[depth - 1];
+            targetScore = WoodCountEvaluation.score(piece);
+            occupied ^= SquareSet.firstOf(sideAttackers & pieces(state, piece));
+            attackers = withXrays(state, to, piece, occupied, attackers) & occupied;
+
+            long swap = sideMask;
+            sideMask = otherMask;
+            otherMask = swap;
+        }
+        while (depth > 0) {
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+            depth--;
+        }
+        return gains[0];
+    }
+
+    /***
+     * same as see(state, move) >= threshold, but stops as soon as the result is known
+     */
+    public boolean seeGreaterEqual(State state, int move, int threshold) {
+        int balance = capturedScore(state, move) - threshold;
+        if (balance < 0) {
+            return false;
+        }
+        balance = movedScore(move) - balance;
+        if (balance <= 0) {
+            return true;
+        }
+        int to = Move.unpackTo(move);
+        long occupied = occupiedAfter(state, move);
+        long attackers = moveGen.findAllAttackers(state, to, occupied) & occupied;
+        long sideMask = state.opp();
+        long otherMask = state.own();
+        boolean result = true;
+        while (true) {
+            long sideAttackers = attackers & sideMask;
+            if (sideAttackers == 0) {
+                break;
+            }
+            result = !result;
+            int piece = leastValuablePiece(state, sideAttackers);
+            if (piece == Piece.KING) {
+                // the king may only recapture when the square is no longer defended
+                return (attackers & otherMask) != 0 ? !result : result;
+            }
+            balance = WoodCountEvaluation.score(piece) - balance;
+            if (balance < (result ? 1 : 0)) {
+                break;
+            }
+            occupied ^= SquareSet.firstOf(sideAttackers & pieces(state, piece));
+            attackers = withXrays(state, to, piece, occupied, attackers) & occupied;
+
+            long swap = sideMask;
+            sideMask = otherMask;
+            otherMask = swap;
+        }
+        return result;
+    }
+
+    private long occupiedAfter(State state, int move) {
+        long occupied = state.occupied() ^ SquareSet.of(Move.unpackFrom(move));
+        if (Move.unpackType(move) == Move.EN_PASSANT) {
+            occupied ^= SquareSet.of(Move.unpackTo(move) - 8);
+        }
+        return occupied;
+    }
+
+    private long withXrays(State state, int to, int removedPiece, long occupied, long attackers) {
+        if (removedPiece == Piece.PAWN || removedPiece == Piece.BISHOP || removedPiece == Piece.QUEEN) {
+            attackers |= PieceSquareSet.bishopRays(to, occupied) & (state.bishops() | state.queens());
+        }
+        if (removedPiece == Piece.ROOK || removedPiece == Piece.QUEEN) {
+            attackers |= PieceSquareSet.rookRays(to, occupied) & (state.rooks() | state.queens());
+        }
+        return attackers;
+    }
+
+    private int leastValuablePiece(State state, long attackers) {
+        for (int piece : LEAST_VALUABLE_FIRST) {
+            if ((attackers & pieces(state, piece)) != 0) {
+                return piece;
+            }
+        }
+        throw new AssertionError();
+    }
+
+    private long pieces(State state, int piece) {
+        return switch (piece) {
+            case Piece.PAWN -> state.pawns();
+            case Piece.KING -> state.kings();
+            case Piece.KNIGHT -> state.knights();
+            case Piece.BISHOP -> state.bishops();
+            case Piece.ROOK -> state.rooks();
+            case Piece.QUEEN -> state.queens();
+            default -> throw new AssertionError(piece);
+        };
+    }
+
+    private int capturedScore(State state, int move) {
+        int type = Move.unpackType(move);
+        if (type == Move.EN_PASSANT) {
+            return WoodCountEvaluation.PAWN_SCORE;
+        }
+        int score = WoodCountEvaluation.score(state.getSquarePiece(Move.unpackTo(move)));
+        if (isPromotion(type)) {
+            score += promotionScore(type) - WoodCountEvaluation.PAWN_SCORE;
+        }
+        return score;
+    }
+
+    private int movedScore(int move) {
+        int type = Move.unpackType(move);
+        if (isPromotion(type)) {
+            return promotionScore(type);
+        }
+        return WoodCountEvaluation.score(Move.unpackPiece(move));
+    }
+
+    private static boolean isPromotion(int type) {
+        return type == Move.PROMOTION_QUEEN || type == Move.PROMOTION_ROOK || type == Move.PROMOTION_BISHOP || type == Move.PROMOTION_KNIGHT;
+    }
+
+    private static int promotionScore(int type) {
+        return switch (type) {
+            case Move.PROMOTION_QUEEN -> WoodCountEvaluation.QUEEN_SCORE;
+            case Move.PROMOTION_ROOK -> WoodCountEvaluation.ROOK_SCORE;
+            case Move.PROMOTION_BISHOP -> WoodCountEvaluation.BISHOP_SCORE;
+            case Move.PROMOTION_KNIGHT -> WoodCountEvaluation.KNIGHT_SCORE;
+            default -> throw new AssertionError(type);
+        };
+    }
+}
@@ -6,20 +6,26 @@ import com.etherblood.etherchess.engine.MirrorZobrist;
 import com.etherblood.etherchess.engine.Move;
 import com.etherblood.etherchess.engine.MoveGenerator;
 import com.etherblood.etherchess.engine.State;
-import com.etherblood.etherchess.engine.table.AlwaysReplaceTable;
-import com.etherblood.etherchess.engine.table.Table;
+import com.etherblood.etherchess.engine.table.BucketTable;
 import com.etherblood.etherchess.engine.util.LongAlgebraicNotation;
 import com.etherblood.etherchess.uci.SearchParams;
 import com.etherblood.etherchess.uci.SearchResult;
 import com.etherblood.etherchess.uci.UciEngine;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import java.lang.management.ManagementFactory;
 import java.util.List;
 import java.util.Random;
 
 public class UciEngineWrapper implements UciEngine {
 
+    // chunk alignment and other direct buffers
+    private static final long DIRECT_MEMORY_RESERVE = 16 * 1024 * 1024;
+
     private final State state = new State(new MirrorZobrist(new Random(12354)::nextLong));
     private final HashHistory history = new HashHistory(0);
-    private Table table = new AlwaysReplaceTable(0);
+    private BucketTable table = new BucketTable(2);
+    private int threads = 1;
+    private ParallelSearch search;
 
     @Override
     public String getName() {
@@ -33,7 +39,10 @@ public class UciEngineWrapper implements UciEngine {
 
     @Override
     public void newGame() {
-        table.clear();
+        table.newGame();
+        if (search != null) {
+            search.newGame();
+        }
     }
 
     @Override
@@ -42,23 +51,60 @@ public class UciEngineWrapper implements UciEngine {
         history.reset(state.hash());
         for (String lan : moves) {
             Move move = LongAlgebraicNotation.parseLanString(state, lan);
-            move.applyTo(state);
-            history.add(state.hash());
+            if (move == null) {
+                Move.applyNullTo(state);
+                history.addNullMove(state.hash());
+            } else {
+                move.applyTo(state);
+                history.add(state.hash());
+            }
         }
     }
 
     @Override
     public void go(SearchParams params, SearchResult result) {
-        BotImpl bot = new BotImpl(table, new PieceSquareEvaluation(), new MoveGenerator());
-        bot.findBest(state, history, params.depth(), result);
+        if (search == null) {
+            search = new ParallelSearch(table, new PieceSquareEvaluation(), new MoveGenerator(), threads, ParallelSearch.Mode.fromSystemProperty());
+        }
+        search.findBest(state, history, params.depth(), result);
     }
 
     @Override
     public void setTableSize(int mib) {
-        long bytes = mib * 1024L * 1024L;
-        int entryCount = Math.toIntExact(bytes / AlwaysReplaceTable.ENTRY_BYTES);
-        long roundedDownToPowerOfTwo = Long.highestOneBit(entryCount);
-        table = new AlwaysReplaceTable(Long.numberOfTrailingZeros(roundedDownToPowerOfTwo));
+        // the old table is kept until the new one is allocated, so a failed resize leaves a working engine
+        long available = maxDirectMemoryBytes() - table.size() * BucketTable.ENTRY_BYTES - DIRECT_MEMORY_RESERVE;
+        BucketTable resized = new BucketTable(tableLogSize(mib, available));
+        table = resized;
+        search = null;
+    }
+
+    /***
+     * largest table which fits into the given size and the available bytes, but at least a single bucket
+     */
+    static int tableLogSize(int mib, long availableBytes) {
+        long bytes = Math.min(mib * 1024L * 1024L, availableBytes);
+        long entryCount = bytes / BucketTable.ENTRY_BYTES;
+        if (entryCount < 4) {
+            // highestOneBit(0) is 0, its 64 trailing zeros would be taken as the largest size
+            return 2;
+        }
+        int logSize = 63 - Long.numberOfLeadingZeros(entryCount);
+        return Math.max(2, Math.min(BucketTable.MAX_LOG_SIZE, logSize));
+    }
+
+    /***
+     * tables live in direct memory, by default it is limited to the maximum heap size (-Xmx)
+     */
+    private static long maxDirectMemoryBytes() {
+        HotSpotDiagnosticMXBean diagnostics = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        long maxDirectMemory = Long.parseLong(diagnostics.getVMOption("MaxDirectMemorySize").getValue());
+        return maxDirectMemory == 0 ? Runtime.getRuntime().maxMemory() : maxDirectMemory;
+    }
+
+    @Override
+    public void setThreads(int threads) {
+        this.threads = threads;
+        search = null;
     }
 
     @Override
@@ -0,0 +1,155 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.bot.evaluation.PieceSquareEvaluation;
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.table.AlwaysReplaceTable;
+import com.etherblood.etherchess.engine.util.LongAlgebraicNotation;
+import com.etherblood.etherchess.uci.SearchStats;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BotImplTest {
+
+    @Test
+    public void quiescenceSeesRecapture() {
+        // Qxe5+ wins a pawn at depth 1, but dxe5 loses the queen right after
+        State state = new State(new MirrorZobrist(new Random(12354)::nextLong));
+        new FenConverter().fromFen(state, "4k3/8/3p4/4p3/8/8/7Q/4K3 w - - 0 1");
+        BotImpl bot = new BotImpl(new AlwaysReplaceTable(16), new PieceSquareEvaluation(), new MoveGenerator());
+
+        Move best = bot.findBest(state, new HashHistory(state.hash()), 1, new NoopSearchResult());
+        Assertions.assertNotEquals("h2e5", LongAlgebraicNotation.toLanString(state.isWhite, best));
+    }
+
+    @Test
+    public void quiescenceStandsPatWithoutCaptures() {
+        // neither side ever has a capture, so every leaf is scored by its stand pat (evaluation + mobility)
+        State state = state("4k3/8/8/3p4/3P4/8/8/4K3 w - - 0 1");
+        PieceSquareEvaluation eval = new PieceSquareEvaluation();
+        MoveGenerator moveGen = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int moveCount = moveGen.generateLegalMoves(state, moves);
+        int expected = -Short.MAX_VALUE;
+        for (int i = 0; i < moveCount; i++) {
+            State child = new State(state.zobrist);
+            child.copyFrom(state);
+            Move.applyTo(moves[i], child);
+            expected = Math.max(expected, -(eval.evaluate(child) + moveGen.countLegalMoves(child)));
+        }
+        BotImpl bot = new BotImpl(new AlwaysReplaceTable(16), eval, moveGen);
+
+        Assertions.assertEquals(expected, search(bot, state, 1).scoreCp());
+    }
+
+    @Test
+    public void quiescenceSearchesAllEvasions() {
+        // Ne7+ forks king and queen, black may not stand pat in check and every king move loses the queen
+        State state = state("2q3k1/5ppp/8/5N2/8/8/5PPP/6K1 w - - 0 1");
+        BotImpl bot = new BotImpl(new AlwaysReplaceTable(16), new PieceSquareEvaluation(), new MoveGenerator());
+
+        SearchStats stats = search(bot, state, 1);
+        Assertions.assertEquals("f5e7", stats.pv().get(0));
+        Assertions.assertTrue(stats.scoreCp() > 0, "score: " + stats.scoreCp());
+    }
+
+    @Test
+    public void quiescenceFindsMateWithoutEvasions() {
+        State state = state("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        BotImpl bot = new BotImpl(new AlwaysReplaceTable(16), new PieceSquareEvaluation(), new MoveGenerator());
+
+        Assertions.assertEquals(1, search(bot, state, 1).scoreMate());
+    }
+
+    @Test
+    public void reducedMovesWhichBeatAlphaAreSearchedAgain() {
+        // in both positions a reduced move beats alpha and scores differently at full depth
+        String[] fens = {
+                "2n5/3R3B/r1kb4/P3p2p/3P3p/2P1P3/4b3/B1K2N2 w - - 0 1",
+                "r4br1/1k2p3/2p2npp/PpnQ4/P5b1/2PPP1qP/5P2/RNB1KB2 w Q - 0 1"};
+        for (String fen : fens) {
+            ResearchRecordingBot bot = new ResearchRecordingBot();
+            search(bot, state(fen), 5);
+
+            Assertions.assertTrue(bot.researches > 0, fen);
+            Assertions.assertEquals(bot.researches, bot.keptFullDepthScores, fen);
+            Assertions.assertTrue(bot.changedAtFullDepth > 0, fen);
+        }
+    }
+
+    /***
+     * checks every reduced search which beats alpha, indexed by ply since nodes nest
+     */
+    private static class ResearchRecordingBot extends BotImpl {
+
+        private final boolean[] reduced = new boolean[512];
+        private final int[] reducedScores = new int[512];
+        private final boolean[] searchedAtFullDepth = new boolean[512];
+        private final int[] fullDepthScores = new int[512];
+        int researches;
+        int keptFullDepthScores;
+        int changedAtFullDepth;
+
+        ResearchRecordingBot() {
+            super(new AlwaysReplaceTable(20), new PieceSquareEvaluation(), new MoveGenerator());
+        }
+
+        @Override
+        int childScore(SearchContext context, boolean isQuiet) throws InterruptedException {
+            int ply = context.ply();
+            int alpha = context.alpha;
+            reduced[ply] = false;
+            searchedAtFullDepth[ply] = false;
+            int score = super.childScore(context, isQuiet);
+            if (reduced[ply] && reducedScores[ply] > alpha) {
+                researches++;
+                if (searchedAtFullDepth[ply] && score == fullDepthScores[ply]) {
+                    keptFullDepthScores++;
+                }
+                if (fullDepthScores[ply] != reducedScores[ply]) {
+                    changedAtFullDepth++;
+                }
+            }
+            return score;
+        }
+
+        @Override
+        int reducedSearch(SearchContext context, int reduction) throws InterruptedException {
+            int score = super.reducedSearch(context, reduction);
+            reduced[context.ply()] = true;
+            reducedScores[context.ply()] = score;
+            return score;
+        }
+
+        @Override
+        int fullDepthSearch(SearchContext context) throws InterruptedException {
+            int score = super.fullDepthSearch(context);
+            searchedAtFullDepth[context.ply()] = true;
+            fullDepthScores[context.ply()] = score;
+            return score;
+        }
+    }
+
+    private static SearchStats search(BotImpl bot, State state, int depth) {
+        List<SearchStats> stats = new ArrayList<>();
+        bot.findBest(state, new HashHistory(state.hash()), depth, new NoopSearchResult() {
+            @Override
+            public void stats(SearchStats value) {
+                stats.add(value);
+            }
+        });
+        return stats.get(stats.size() - 1);
+    }
+
+    private static State state(String fen) {
+        State state = new State(new MirrorZobrist(new Random(12354)::nextLong));
+        new FenConverter().fromFen(state, fen);
+        return state;
+    }
+}
@@ -0,0 +1,32 @@
+package com.etherblood.etherchess.bot;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HashHistoryTest {
+
+    @Test
+    public void repetition() {
+        HashHistory history = new HashHistory(1);
+        history.add(2);
+        history.add(3);
+        history.add(4);
+        history.add(1);
+        Assertions.assertTrue(history.isDraw(4));
+        Assertions.assertFalse(history.isDraw(3), "an irreversible move happened since the repeated position");
+    }
+
+    @Test
+    public void noRepetitionAcrossNullMove() {
+        HashHistory history = new HashHistory(1);
+        history.add(2);
+        history.addNullMove(3);
+        history.add(4);
+        history.add(1);
+        Assertions.assertFalse(history.isDraw(4), "positions before a null move can not repeat after it");
+
+        history.add(5);
+        history.add(3);
+        Assertions.assertTrue(history.isDraw(6), "the position after the null move itself may repeat");
+    }
+}
@@ -0,0 +1,40 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.State;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class InsufficientMaterialTest {
+
+    @Test
+    public void insufficient() {
+        for (String sideToMove : new String[]{"w", "b"}) {
+            assertInsufficient(true, "8/8/8/4k3/8/8/8/4K3 " + sideToMove);
+            assertInsufficient(true, "8/8/8/4k3/8/8/8/2B1K3 " + sideToMove);
+            assertInsufficient(true, "8/8/8/4k3/8/8/8/1N2K3 " + sideToMove);
+            assertInsufficient(true, "5b2/8/8/4k3/8/8/8/2B1K3 " + sideToMove);
+            assertInsufficient(true, "5b2/8/8/4k3/8/8/8/B1B1K3 " + sideToMove);
+        }
+    }
+
+    @Test
+    public void sufficient() {
+        for (String sideToMove : new String[]{"w", "b"}) {
+            assertInsufficient(false, "8/8/8/4k3/8/8/8/1NN1K3 " + sideToMove);
+            assertInsufficient(false, "2b5/8/8/4k3/8/8/8/2B1K3 " + sideToMove);
+            assertInsufficient(false, "8/8/8/4k3/8/8/8/1NB1K3 " + sideToMove);
+            assertInsufficient(false, "8/8/8/4k3/8/8/8/R3K3 " + sideToMove);
+            assertInsufficient(false, "8/8/8/4k3/8/8/4p3/4K3 " + sideToMove);
+            assertInsufficient(false, "3q4/8/8/4k3/8/8/8/4K3 " + sideToMove);
+        }
+    }
+
+    private void assertInsufficient(boolean expected, String fen) {
+        State state = new State(new MirrorZobrist(new Random(7)::nextLong));
+        new FenConverter().fromFen(state, fen + " - - 0 1");
+        Assertions.assertEquals(expected, InsufficientMaterial.isInsufficient(state.materialSignature()), fen);
+    }
+}
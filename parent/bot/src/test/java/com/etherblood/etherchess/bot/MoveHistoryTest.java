@@ -0,0 +1,49 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.util.Piece;
+import com.etherblood.etherchess.engine.util.Square;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MoveHistoryTest {
+
+    private final MoveHistory history = new MoveHistory();
+    private final int move = Move.pack32(Move.DEFAULT, Piece.KNIGHT, Square.G1, Square.F3);
+    private final int previous1 = Move.pack32(Move.DOUBLE, Piece.PAWN, Square.E2, Square.E4);
+    private final int previous2 = Move.pack32(Move.DEFAULT, Piece.BISHOP, Square.F1, Square.C4);
+
+    @Test
+    public void updatesAreBounded() {
+        for (int i = 0; i < 1000; i++) {
+            history.update(move, previous1, previous2, MoveHistory.bonus(20));
+        }
+        Assertions.assertTrue(history.score(move, Move.NONE, Move.NONE) <= MoveHistory.MAX_SCORE);
+        Assertions.assertTrue(history.score(move, previous1, previous2) <= 3 * MoveHistory.MAX_SCORE);
+        for (int i = 0; i < 1000; i++) {
+            history.update(move, previous1, previous2, -MoveHistory.bonus(20));
+        }
+        Assertions.assertTrue(history.score(move, previous1, previous2) >= -3 * MoveHistory.MAX_SCORE);
+        Assertions.assertTrue(history.score(move, previous1, previous2) < 0);
+    }
+
+    @Test
+    public void continuationDependsOnPreviousMoves() {
+        history.update(move, previous1, Move.NONE, MoveHistory.bonus(4));
+        int butterfly = history.score(move, Move.NONE, Move.NONE);
+        Assertions.assertTrue(butterfly > 0);
+        Assertions.assertEquals(2 * butterfly, history.score(move, previous1, Move.NONE));
+        Assertions.assertEquals(butterfly, history.score(move, previous2, Move.NONE));
+        Assertions.assertEquals(butterfly, history.score(move, Move.NONE, previous1), "plies have separate tables");
+    }
+
+    @Test
+    public void ageAndClear() {
+        history.update(move, previous1, previous2, MoveHistory.bonus(4));
+        int score = history.score(move, previous1, previous2);
+        history.age();
+        Assertions.assertEquals(score / 2, history.score(move, previous1, previous2));
+        history.clear();
+        Assertions.assertEquals(0, history.score(move, previous1, previous2));
+    }
+}
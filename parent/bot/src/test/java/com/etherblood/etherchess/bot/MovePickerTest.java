@@ -0,0 +1,112 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.util.Piece;
+import com.etherblood.etherchess.engine.util.Square;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MovePickerTest {
+
+    private final MoveGenerator moveGen = new MoveGenerator();
+
+    @Test
+    public void picksEveryLegalMoveOnce() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1"
+        };
+        for (String fen : fens) {
+            State state = state(fen);
+            int[] legal = new int[MoveGenerator.MAX_MOVES];
+            int legalCount = moveGen.generateLegalMoves(state, legal);
+            for (int i = -1; i < legalCount; i++) {
+                int hashMove = i < 0 ? Move.NONE : legal[i];
+                int[] picked = pickAll(state, hashMove);
+                if (hashMove != Move.NONE) {
+                    Assertions.assertEquals(hashMove, picked[0], fen);
+                }
+                Assertions.assertArrayEquals(sorted(Arrays.copyOf(legal, legalCount)), sorted(picked), fen);
+            }
+        }
+    }
+
+    @Test
+    public void illegalHashMoveIsSkipped() {
+        State state = state("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+        // e.g. from a different position with the same hash
+        int hashMove = Move.pack32(Move.DEFAULT, Piece.QUEEN, Square.D1, Square.D8);
+        int[] picked = pickAll(state, hashMove);
+        Assertions.assertEquals(48, picked.length);
+        Assertions.assertFalse(Arrays.stream(picked).anyMatch(move -> move == hashMove));
+    }
+
+    @Test
+    public void killersAndCounterMoveLeadTheQuiets() {
+        State state = state("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+        int killer1 = Move.pack32(Move.DEFAULT, Piece.PAWN, Square.A2, Square.A3);
+        int killer2 = Move.pack32(Move.CASTLING, Piece.KING, Square.E1, Square.G1);
+        // not legal here, e.g. a killer from a sibling position
+        int illegal = Move.pack32(Move.DEFAULT, Piece.QUEEN, Square.D1, Square.D8);
+        int counterMove = Move.pack32(Move.DEFAULT, Piece.KNIGHT, Square.C3, Square.B1);
+        MovePicker picker = new MovePicker(moveGen);
+        picker.init(state, Move.NONE, killer1, illegal, counterMove, Move.NONE, Move.NONE);
+        int[] picked = pickRemaining(picker);
+        int firstQuiet = indexOf(picked, killer1);
+        Assertions.assertEquals(counterMove, picked[firstQuiet + 1]);
+        Assertions.assertEquals(48, picked.length);
+        for (int i = 0; i < firstQuiet; i++) {
+            Assertions.assertNotEquals(Piece.EMPTY, state.getSquarePiece(Move.unpackTo(picked[i])), "captures come first");
+        }
+
+        picker.init(state, killer1, killer1, killer2, Move.NONE, Move.NONE, Move.NONE);
+        picked = pickRemaining(picker);
+        Assertions.assertEquals(killer1, picked[0]);
+        // the hash move shifts the captures by one, it is not picked again as a killer
+        Assertions.assertEquals(firstQuiet + 1, indexOf(picked, killer2));
+    }
+
+    private int[] pickAll(State state, int hashMove) {
+        MovePicker picker = new MovePicker(moveGen);
+        picker.init(state, hashMove);
+        return pickRemaining(picker);
+    }
+
+    private static int[] pickRemaining(MovePicker picker) {
+        int[] picked = new int[MoveGenerator.MAX_MOVES];
+        int count = 0;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            picked[count++] = move;
+        }
+        return Arrays.copyOf(picked, count);
+    }
+
+    private static int indexOf(int[] moves, int move) {
+        for (int i = 0; i < moves.length; i++) {
+            if (moves[i] == move) {
+                return i;
+            }
+        }
+        throw new AssertionError(move);
+    }
+
+    private static int[] sorted(int[] moves) {
+        int[] result = moves.clone();
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static State state(String fen) {
+        State state = new State(new MirrorZobrist(new Random(7)::nextLong));
+        new FenConverter().fromFen(state, fen);
+        return state;
+    }
+}
@@ -0,0 +1,68 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.bot.evaluation.PieceSquareEvaluation;
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.table.BucketTable;
+import com.etherblood.etherchess.engine.util.LongAlgebraicNotation;
+import com.etherblood.etherchess.uci.SearchStats;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ParallelSearchTest {
+
+    @Test
+    public void lazySmp() {
+        assertFindsMate(ParallelSearch.Mode.LAZY_SMP);
+    }
+
+    @Test
+    public void abdada() {
+        assertFindsMate(ParallelSearch.Mode.ABDADA);
+    }
+
+    @Test
+    public void helpersSkipDifferentIterations() {
+        for (int iteration = 1; iteration <= 20; iteration++) {
+            Assertions.assertNotEquals(ParallelSearch.isHelperIteration(1, iteration), ParallelSearch.isHelperIteration(2, iteration));
+        }
+        List<String> patterns = new ArrayList<>();
+        for (int index = 1; index <= 20; index++) {
+            StringBuilder pattern = new StringBuilder();
+            for (int iteration = 1; iteration <= 20; iteration++) {
+                pattern.append(ParallelSearch.isHelperIteration(index, iteration) ? 'x' : '-');
+            }
+            patterns.add(pattern.toString());
+        }
+        Assertions.assertEquals(20, patterns.stream().distinct().count());
+        Assertions.assertEquals(ParallelSearch.isHelperIteration(1, 7), ParallelSearch.isHelperIteration(21, 7));
+    }
+
+    private void assertFindsMate(ParallelSearch.Mode mode) {
+        State state = new State(new MirrorZobrist(new Random(12354)::nextLong));
+        new FenConverter().fromFen(state, "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        ParallelSearch search = new ParallelSearch(new BucketTable(16), new PieceSquareEvaluation(), new MoveGenerator(), 4, mode);
+
+        // searches twice to make sure helpers of the first search were stopped and can be restarted
+        for (int i = 0; i < 2; i++) {
+            List<SearchStats> stats = new ArrayList<>();
+            Move best = search.findBest(state, new HashHistory(state.hash()), 5, new NoopSearchResult() {
+                @Override
+                public void stats(SearchStats value) {
+                    stats.add(value);
+                }
+            });
+            Assertions.assertEquals("a1a8", LongAlgebraicNotation.toLanString(state.isWhite, best));
+            SearchStats last = stats.get(stats.size() - 1);
+            Assertions.assertEquals(1, last.scoreMate());
+            Assertions.assertTrue(last.nodes() > 0);
+            Assertions.assertTrue(last.nodes() <= search.nodes(), "nodes of all searchers are reported");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.util.LongAlgebraicNotation;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class StaticExchangeEvaluationTest {
+
+    private final MoveGenerator moveGen = new MoveGenerator();
+    private final StaticExchangeEvaluation see = new StaticExchangeEvaluation(moveGen);
+
+    @Test
+    public void undefendedPawn() {
+        assertSee("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "e1e5", 100);
+    }
+
+    @Test
+    public void xrayAttackers() {
+        // NxP NxN RxN BxR QxB QxQ, white stops after black takes the knight
+        assertSee("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", "d3e5", -190);
+    }
+
+    @Test
+    public void defendedByPawn() {
+        assertSee("4k3/8/3p4/4p3/8/8/7Q/4K3 w - - 0 1", "h2e5", -800);
+    }
+
+    @Test
+    public void enPassant() {
+        assertSee("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6", 100);
+    }
+
+    @Test
+    public void kingDoesNotRecaptureDefendedPiece() {
+        assertSee("8/8/8/8/3k4/4p3/3P4/K3R3 w - - 0 1", "d2e3", 100);
+        assertSee("8/8/8/8/3k4/4p3/3P4/K7 w - - 0 1", "d2e3", 0);
+    }
+
+    @Test
+    public void promotions() {
+        assertSee("1r2k3/P7/8/8/8/8/8/4K3 w - - 0 1", "a7b8q", 1300);
+        assertSee("4k3/P7/8/8/8/8/8/4K3 w - - 0 1", "a7a8q", 800);
+        assertSee("r3k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "b7b8q", -100);
+    }
+
+    @Test
+    public void thresholdMatchesSee() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                "1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1",
+                "8/8/8/8/3k4/4p3/3P4/K3R3 w - - 0 1"
+        };
+        for (String fen : fens) {
+            State state = state(fen);
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int count = moveGen.generateLegalMoves(state, moves);
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                int value = see.see(state, move);
+                Assertions.assertTrue(see.seeGreaterEqual(state, move, value), fen);
+                Assertions.assertFalse(see.seeGreaterEqual(state, move, value + 1), fen);
+            }
+        }
+    }
+
+    private void assertSee(String fen, String lanMove, int expected) {
+        State state = state(fen);
+        int move = Move.pack32(LongAlgebraicNotation.parseLanString(state, lanMove));
+        Assertions.assertEquals(expected, see.see(state, move), fen + " " + lanMove);
+        Assertions.assertTrue(see.seeGreaterEqual(state, move, expected));
+        Assertions.assertFalse(see.seeGreaterEqual(state, move, expected + 1));
+    }
+
+    private State state(String fen) {
+        State state = new State(new MirrorZobrist(new Random(7)::nextLong));
+        new FenConverter().fromFen(state, fen);
+        return state;
+    }
+}
@@ -0,0 +1,40 @@
+package com.etherblood.etherchess.bot;
+
+import com.etherblood.etherchess.engine.table.BucketTable;
+import com.etherblood.etherchess.uci.SearchParamsBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class UciEngineWrapperTest {
+
+    @Test
+    public void tableLogSize() {
+        Assertions.assertEquals(2, UciEngineWrapper.tableLogSize(0, Long.MAX_VALUE));
+        Assertions.assertEquals(16, UciEngineWrapper.tableLogSize(1, Long.MAX_VALUE));
+        Assertions.assertEquals(22, UciEngineWrapper.tableLogSize(64, Long.MAX_VALUE));
+        Assertions.assertEquals(22, UciEngineWrapper.tableLogSize(100, Long.MAX_VALUE));
+        Assertions.assertEquals(34, UciEngineWrapper.tableLogSize(256 * 1024, Long.MAX_VALUE));
+        Assertions.assertEquals(22, UciEngineWrapper.tableLogSize(1024, 100 * 1024 * 1024), "limited by the available direct memory");
+        Assertions.assertEquals(2, UciEngineWrapper.tableLogSize(1024, -1));
+        Assertions.assertEquals(BucketTable.MAX_LOG_SIZE, UciEngineWrapper.tableLogSize(Integer.MAX_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void searchWithSmallestHashSizes() {
+        UciEngineWrapper engine = new UciEngineWrapper();
+        for (int mib : new int[]{0, 1}) {
+            engine.setTableSize(mib);
+            engine.setPosition("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", List.of("e2e4"));
+            List<String> bestMoves = new ArrayList<>();
+            engine.go(new SearchParamsBuilder().depth(3).build(), new NoopSearchResult() {
+                @Override
+                public void bestMove(String lanMove) {
+                    bestMoves.add(lanMove);
+                }
+            });
+            Assertions.assertEquals(1, bestMoves.size(), "Hash " + mib);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.etherblood.etherchess.engine;
+
+import com.etherblood.etherchess.engine.util.Castling;
+import com.etherblood.etherchess.engine.util.Direction;
+import com.etherblood.etherchess.engine.util.Piece;
+import com.etherblood.etherchess.engine.util.PieceSquareSet;
+import com.etherblood.etherchess.engine.util.Square;
+import com.etherblood.etherchess.engine.util.SquareSet;
+
+/***
+ * legal move generator for AbsoluteState, pawn directions, back ranks and castlings depend on the side to move
+ * generated moves use absolute squares, apply them with AbsoluteState.applyTo
+ */
+public class AbsoluteMoveGenerator {
+
+    private static final int WHITE_LARGE_CASTLING_RAW = Move.pack32(Move.CASTLING, Piece.KING, Square.E1, Square.C1);
+    private static final int WHITE_SMALL_CASTLING_RAW = Move.pack32(Move.CASTLING, Piece.KING, Square.E1, Square.G1);
+    private static final int BLACK_LARGE_CASTLING_RAW = Move.pack32(Move.CASTLING, Piece.KING, Square.E8, Square.C8);
+    private static final int BLACK_SMALL_CASTLING_RAW = Move.pack32(Move.CASTLING, Piece.KING, Square.E8, Square.G8);
+
+    /***
+     * writes packed legal moves into the buffer, starting at index 0
+     * the buffer must have room for at least MoveGenerator.MAX_MOVES entries
+     * returns the number of moves written
+     */
+    public int generateLegalMoves(AbsoluteState state, int[] out) {
+        assert state.assertValid();
+        long kingDangerSquares = kingDangerSquares(state);
+
+        int count = legalKingMoves(state, kingDangerSquares, out, 0);
+        long captureMask = state.opp();
+        long pushMask = ~0;
+        long ownKings = state.kings() & state.own();
+        if ((ownKings & kingDangerSquares) != 0) {
+            long checkers = findOpponentCheckers(state);
+            int checkerCount = SquareSet.count(checkers);
+            if (checkerCount > 1) {
+                // more than 1 opponent piece is giving check, only king moves can evade it
+                return count;
+            }
+            assert checkerCount == 1;
+            captureMask = checkers;
+            int checkerSquare = Square.firstOf(checkers);
+            if ((checkers & (PieceSquareSet.kingMoves(checkerSquare) | PieceSquareSet.knightMoves(checkerSquare))) != 0) {
+                // this if is not required but is cheaper than a full move gen
+                long sourceMask = findAttackers(state, checkerSquare, state.isWhite);
+                pushMask = 0;
+                count = generateDefaultMoves(Piece.QUEEN, sourceMask & state.queens(), checkerSquare, out, count);
+                count = generateDefaultMoves(Piece.ROOK, sourceMask & state.rooks(), checkerSquare, out, count);
+                count = generateDefaultMoves(Piece.BISHOP, sourceMask & state.bishops(), checkerSquare, out, count);
+                count = generateDefaultMoves(Piece.KNIGHT, sourceMask & state.knights(), checkerSquare, out, count);
+                count = generateDefaultMoves(Piece.KING, sourceMask & state.kings(), checkerSquare, out, count);
+                count = pawnMoves(state, sourceMask & state.pawns(), pushMask, captureMask, out, count);
+                return count;
+            }
+            int kingSquare = Square.firstOf(ownKings);
+            pushMask = PieceSquareSet.raySquaresBetween(kingSquare, checkerSquare);
+        }
+
+        long oppRookLikes = (state.rooks() | state.queens()) & state.opp();
+        long oppBishopLikes = (state.bishops() | state.queens()) & state.opp();
+        long pinnedMask = 0;
+        for (int direction = Direction.NORTH; direction <= Direction.NORTH_WEST; direction++) {
+            long pinned = findPinned(state, direction, Direction.isDiagonal(direction) ? oppBishopLikes : oppRookLikes);
+            if (pinned != 0) {
+                count = pinnedMoves(state, direction, pinned, pushMask, captureMask, out, count);
+                pinnedMask |= pinned;
+            }
+        }
+
+        long sourceMask = state.own();
+        count = pawnMoves(state, sourceMask & state.pawns() & ~pinnedMask, pushMask, captureMask, out, count);
+        count = sliderMoves(state, Piece.KNIGHT, sourceMask & state.knights() & ~pinnedMask, pushMask, captureMask, out, count);
+        count = sliderMoves(state, Piece.BISHOP, sourceMask & state.bishops() & ~pinnedMask, pushMask, captureMask, out, count);
+        count = sliderMoves(state, Piece.ROOK, sourceMask & state.rooks() & ~pinnedMask, pushMask, captureMask, out, count);
+        count = sliderMoves(state, Piece.QUEEN, sourceMask & state.queens() & ~pinnedMask, pushMask, captureMask, out, count);
+        return count;
+    }
+
+    /***
+     * squares attacked by pawns of the given color
+     */
+    private static long pawnAttacks(long pawns, boolean white) {
+        if (white) {
+            return ((pawns << 7) & ~SquareSet.FILE_H) | ((pawns << 9) & ~SquareSet.FILE_A);
+        }
+        return ((pawns >>> 9) & ~SquareSet.FILE_H) | ((pawns >>> 7) & ~SquareSet.FILE_A);
+    }
+
+    private static long pawnPushes(long pawns, boolean white) {
+        return white ? pawns << 8 : pawns >>> 8;
+    }
+
+    /***
+     * returns squareSet of king-zone attacked by the opponent, squares outside the king-zone are undefined
+     */
+    private long kingDangerSquares(AbsoluteState state) {
+        long ownKings = state.own() & state.kings();
+        int ownKingSquare = Square.firstOf(ownKings);
+        long occupiedOwnKingExcluded = state.occupied() ^ ownKings;
+        long result = pawnAttacks(state.pawns() & state.opp(), !state.isWhite);
+        long rookLikes = (state.rooks() | state.queens()) & state.opp() & PieceSquareSet.kingDangerRooksMask(ownKingSquare);
+        while (rookLikes != 0) {
+            int from = Square.firstOf(rookLikes);
+            result |= PieceSquareSet.rookRays(from, occupiedOwnKingExcluded);
+            rookLikes = SquareSet.clearFirst(rookLikes);
+        }
+        long bishopLikes = (state.bishops() | state.queens()) & state.opp() & PieceSquareSet.kingDangerBishopsMask(ownKingSquare);
+        while (bishopLikes != 0) {
+            int from = Square.firstOf(bishopLikes);
+            result |= PieceSquareSet.bishopRays(from, occupiedOwnKingExcluded);
+            bishopLikes = SquareSet.clearFirst(bishopLikes);
+        }
+        long knights = state.knights() & state.opp() & PieceSquareSet.kingDangerKnightsMask(ownKingSquare);
+        while (knights != 0) {
+            int from = Square.firstOf(knights);
+            result |= PieceSquareSet.knightMoves(from);
+            knights = SquareSet.clearFirst(knights);
+        }
+        result |= PieceSquareSet.kingMoves(Square.firstOf(state.kings() & state.opp()));
+        return result;
+    }
+
+    public long findOwnCheckers(AbsoluteState state) {
+        return findAttackers(state, Square.firstOf(state.kings() & state.opp()), state.isWhite);
+    }
+
+    public long findOpponentCheckers(AbsoluteState state) {
+        return findAttackers(state, Square.firstOf(state.kings() & state.own()), !state.isWhite);
+    }
+
+    /***
+     * pieces of the given color attacking the target square
+     */
+    public long findAttackers(AbsoluteState state, int target, boolean white) {
+        long attackerMask = white ? state.white() : state.black();
+        long attackers = 0;
+        attackers |= PieceSquareSet.kingMoves(target) & attackerMask & state.kings();
+        attackers |= PieceSquareSet.knightMoves(target) & attackerMask & state.knights();
+        attackers |= pawnAttacks(SquareSet.of(target), !white) & attackerMask & state.pawns();
+        attackers |= PieceSquareSet.rookRays(target, state.occupied()) & attackerMask & (state.rooks() | state.queens());
+        attackers |= PieceSquareSet.bishopRays(target, state.occupied()) & attackerMask & (state.bishops() | state.queens());
+        return attackers;
+    }
+
+    /***
+     * returns the own piece pinned to the own king in the given direction or 0
+     */
+    private long findPinned(AbsoluteState state, int direction, long opponentAttackersMask) {
+        int kingSquare = Square.firstOf(state.kings() & state.own());
+        long ray = SquareSet.simpleDirectionRay(direction, kingSquare);
+        if ((state.own() & ray) != 0 && (ray & opponentAttackersMask) != 0) {
+            // check above is not required, but it provides a cheap early exit condition
+            long pinRay = PieceSquareSet.directionRay(direction, kingSquare, state.opp());
+            long pinned = pinRay & state.own();
+            if (SquareSet.count(pinned) == 1 && (pinRay & opponentAttackersMask) != 0) {
+                return pinned;
+            }
+        }
+        return 0;
+    }
+
+    private int pinnedMoves(AbsoluteState state, int direction, long pinned, long pushMask, long captureMask, int[] out, int count) {
+        int kingSquare = Square.firstOf(state.kings() & state.own());
+        long pinRay = PieceSquareSet.directionRay(direction, kingSquare, state.opp());
+        int from = Square.firstOf(pinned);
+        long slides = pinRay & ~state.own() & (pushMask | captureMask);
+        if ((pinned & state.rooks()) != 0 && !Direction.isDiagonal(direction)) {
+            count = generateDefaultMoves(Piece.ROOK, from, slides, out, count);
+        } else if ((pinned & state.queens()) != 0) {
+            count = generateDefaultMoves(Piece.QUEEN, from, slides, out, count);
+        } else if ((pinned & state.bishops()) != 0 && Direction.isDiagonal(direction)) {
+            count = generateDefaultMoves(Piece.BISHOP, from, slides, out, count);
+        } else if ((pinned & state.pawns()) != 0) {
+            count = pawnMoves(state, pinned, pushMask & pinRay, captureMask & pinRay, out, count);
+        } else {
+            // pinned knights can never move
+            // kings can not be pinned
+        }
+        return count;
+    }
+
+    private int sliderMoves(AbsoluteState state, int piece, long ownPieces, long pushMask, long captureMask, int[] out, int count) {
+        long occupied = state.occupied();
+        while (ownPieces != 0) {
+            int from = Square.firstOf(ownPieces);
+            long targets = switch (piece) {
+                case Piece.KNIGHT -> PieceSquareSet.knightMoves(from);
+                case Piece.BISHOP -> PieceSquareSet.bishopRays(from, occupied);
+                case Piece.ROOK -> PieceSquareSet.rookRays(from, occupied);
+                case Piece.QUEEN -> PieceSquareSet.queenRays(from, occupied);
+                default -> throw new AssertionError(piece);
+            };
+            count = generateDefaultMoves(piece, from, targets & ~state.own() & (pushMask | captureMask), out, count);
+            ownPieces = SquareSet.clearFirst(ownPieces);
+        }
+        return count;
+    }
+
+    private int legalKingMoves(AbsoluteState state, long kingDangerSquares, int[] out, int count) {
+        long ownKings = state.kings() & state.own();
+        int from = Square.firstOf(ownKings);
+        count = generateDefaultMoves(Piece.KING, from, PieceSquareSet.kingMoves(from) & ~(state.own() | kingDangerSquares), out, count);
+        if ((ownKings & kingDangerSquares) == 0) {
+            // castling squares of black are those of white shifted to the 8th rank
+            int backRank = state.isWhite ? 0 : Square.A8;
+            int large = state.isWhite ? Castling.A1 : Castling.A8;
+            int small = state.isWhite ? Castling.H1 : Castling.H8;
+            if ((state.availableCastlings & large) != 0) {
+                if ((((SquareSet.B1 | SquareSet.C1 | SquareSet.D1) << backRank) & state.occupied()) == 0) {
+                    if ((((SquareSet.C1 | SquareSet.D1 | SquareSet.E1) << backRank) & kingDangerSquares) == 0) {
+                        out[count++] = state.isWhite ? WHITE_LARGE_CASTLING_RAW : BLACK_LARGE_CASTLING_RAW;
+                    }
+                }
+            }
+            if ((state.availableCastlings & small) != 0) {
+                if ((((SquareSet.F1 | SquareSet.G1) << backRank) & state.occupied()) == 0) {
+                    if ((((SquareSet.E1 | SquareSet.F1 | SquareSet.G1) << backRank) & kingDangerSquares) == 0) {
+                        out[count++] = state.isWhite ? WHITE_SMALL_CASTLING_RAW : BLACK_SMALL_CASTLING_RAW;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private int generateDefaultMoves(int piece, int from, long toSquareSet, int[] out, int count) {
+        while (toSquareSet != 0) {
+            int to = Square.firstOf(toSquareSet);
+            out[count++] = Move.pack32(Move.DEFAULT, piece, from, to);
+
+            toSquareSet = SquareSet.clearFirst(toSquareSet);
+        }
+        return count;
+    }
+
+    private int generateDefaultMoves(int piece, long fromSquareSet, int to, int[] out, int count) {
+        while (fromSquareSet != 0) {
+            int from = Square.firstOf(fromSquareSet);
+            out[count++] = Move.pack32(Move.DEFAULT, piece, from, to);
+
+            fromSquareSet = SquareSet.clearFirst(fromSquareSet);
+        }
+        return count;
+    }
+
+    private int generatePromotions(int from, int to, int[] out, int count) {
+        out[count++] = Move.pack32(Move.PROMOTION_QUEEN, Piece.PAWN, from, to);
+        out[count++] = Move.pack32(Move.PROMOTION_KNIGHT, Piece.PAWN, from, to);
+        out[count++] = Move.pack32(Move.PROMOTION_ROOK, Piece.PAWN, from, to);
+        out[count++] = Move.pack32(Move.PROMOTION_BISHOP, Piece.PAWN, from, to);
+        return count;
+    }
+
+    private int pawnTargets(long targets, int offset, long promotionRank, int[] out, int count) {
+        while (targets != 0) {
+            int to = Square.firstOf(targets);
+            int from = to - offset;
+            if ((SquareSet.of(to) & promotionRank) != 0) {
+                count = generatePromotions(from, to, out, count);
+            } else {
+                out[count++] = Move.pack32(Move.DEFAULT, Piece.PAWN, from, to);
+            }
+
+            targets = SquareSet.clearFirst(targets);
+        }
+        return count;
+    }
+
+    private int pawnMoves(AbsoluteState state, long ownPawns, long pushMask, long captureMask, int[] out, int count) {
+        boolean white = state.isWhite;
+        int forward = white ? 8 : -8;
+        long promotionRank = white ? SquareSet.RANK_8 : SquareSet.RANK_1;
+
+        long moves = pawnPushes(ownPawns, white) & ~state.occupied();
+        long doubles = pawnPushes(moves, white) & ~state.occupied() & (white ? SquareSet.RANK_4 : SquareSet.RANK_5);
+        count = pawnTargets(moves & pushMask, forward, promotionRank, out, count);
+        doubles &= pushMask;
+        while (doubles != 0) {
+            int to = Square.firstOf(doubles);
+            out[count++] = Move.pack32(Move.DOUBLE, Piece.PAWN, to - 2 * forward, to);
+
+            doubles = SquareSet.clearFirst(doubles);
+        }
+
+        if (state.enPassantSquare != State.NO_EN_PASSANT) {
+            int captured = state.enPassantSquare - forward;
+            long pawns = ownPawns & pawnAttacks(SquareSet.of(state.enPassantSquare), !white);
+            int kingSquare = Square.firstOf(state.kings() & state.own());
+            while (pawns != 0) {
+                long pawn = SquareSet.firstOf(pawns);
+                pawns ^= pawn;
+                long occ = state.occupied() ^ (pawn | SquareSet.of(state.enPassantSquare) | SquareSet.of(captured));
+                if ((PieceSquareSet.rookRays(kingSquare, occ) & (state.rooks() | state.queens()) & state.opp()) != 0
+                        || (PieceSquareSet.bishopRays(kingSquare, occ) & (state.bishops() | state.queens()) & state.opp()) != 0) {
+                    // en passant is pinned and can't be used
+                    continue;
+                }
+                out[count++] = Move.pack32(Move.EN_PASSANT, Piece.PAWN, Square.firstOf(pawn), state.enPassantSquare);
+            }
+        }
+
+        long targets = state.opp() & captureMask;
+        if (white) {
+            count = pawnTargets((ownPawns << 7) & ~SquareSet.FILE_H & targets, 7, promotionRank, out, count);
+            count = pawnTargets((ownPawns << 9) & ~SquareSet.FILE_A & targets, 9, promotionRank, out, count);
+        } else {
+            count = pawnTargets((ownPawns >>> 9) & ~SquareSet.FILE_H & targets, -9, promotionRank, out, count);
+            count = pawnTargets((ownPawns >>> 7) & ~SquareSet.FILE_A & targets, -7, promotionRank, out, count);
+        }
+        return count;
+    }
+}
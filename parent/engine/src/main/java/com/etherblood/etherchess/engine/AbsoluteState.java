@@ -0,0 +1,311 @@
+package com.etherblood.etherchess.engine;
+
+import com.etherblood.etherchess.engine.util.Castling;
+import com.etherblood.etherchess.engine.util.Piece;
+import com.etherblood.etherchess.engine.util.PieceSquareSet;
+import com.etherblood.etherchess.engine.util.Square;
+import com.etherblood.etherchess.engine.util.SquareSet;
+
+/***
+ * alternative to State which stores white/black instead of own/opp square sets
+ * squares, castlings and moves are absolute (white perspective), so applying a move never mirrors the board
+ * it exists to cross-check and benchmark State, so moves update the same hash and fifty moves counter,
+ * but there is no pawn hash, material signature or mailbox
+ */
+public class AbsoluteState {
+
+    public final MirrorZobrist zobrist;
+
+    private long white;
+    private long black;
+    private long pawns;
+    private long kings;
+    private long knights;
+    private long bishops;
+    private long rooks;
+    private long queens;
+
+    public int availableCastlings;
+    public int enPassantSquare;
+    public int fiftyMovesCounter;
+    public boolean isWhite;
+
+    // hash of the pieces from whites perspective, see hash()
+    private long piecesHash;
+
+    public AbsoluteState(MirrorZobrist zobrist) {
+        this.zobrist = zobrist;
+    }
+
+    public void clear() {
+        white = 0;
+        black = 0;
+        pawns = 0;
+        kings = 0;
+        knights = 0;
+        bishops = 0;
+        rooks = 0;
+        queens = 0;
+        piecesHash = 0;
+        availableCastlings = Castling.OWN | Castling.OPP;
+        enPassantSquare = State.NO_EN_PASSANT;
+        fiftyMovesCounter = 0;
+        isWhite = true;
+    }
+
+    public void togglePiece(boolean isWhitePiece, int piece, int square) {
+        togglePieces(isWhitePiece, piece, SquareSet.of(square));
+        piecesHash ^= zobrist.pieceHash(isWhitePiece, piece, square);
+    }
+
+    /***
+     * same value as State.hash() for the same position
+     */
+    public long hash() {
+        return zobrist.absoluteHash(isWhite, piecesHash, enPassantSquare, availableCastlings);
+    }
+
+    private void togglePieces(boolean isWhitePiece, int piece, long squareSet) {
+        if (isWhitePiece) {
+            white ^= squareSet;
+        } else {
+            black ^= squareSet;
+        }
+        switch (piece) {
+            case Piece.PAWN -> pawns ^= squareSet;
+            case Piece.KING -> kings ^= squareSet;
+            case Piece.KNIGHT -> knights ^= squareSet;
+            case Piece.BISHOP -> bishops ^= squareSet;
+            case Piece.ROOK -> rooks ^= squareSet;
+            case Piece.QUEEN -> queens ^= squareSet;
+            default -> throw new AssertionError(piece);
+        }
+    }
+
+    public int getSquarePiece(int square) {
+        long squares = SquareSet.of(square);
+        if ((pawns & squares) != 0) {
+            return Piece.PAWN;
+        }
+        if ((kings & squares) != 0) {
+            return Piece.KING;
+        }
+        if ((knights & squares) != 0) {
+            return Piece.KNIGHT;
+        }
+        if ((bishops & squares) != 0) {
+            return Piece.BISHOP;
+        }
+        if ((rooks & squares) != 0) {
+            return Piece.ROOK;
+        }
+        if ((queens & squares) != 0) {
+            return Piece.QUEEN;
+        }
+        return Piece.EMPTY;
+    }
+
+    public void applyTo(int move, UndoInfo undo) {
+        undo.availableCastlings = availableCastlings;
+        undo.enPassantSquare = enPassantSquare;
+        undo.fiftyMovesCounter = fiftyMovesCounter;
+        undo.piecesHash = piecesHash;
+        undo.capture = Piece.EMPTY;
+
+        int type = Move.unpackType(move);
+        int piece = Move.unpackPiece(move);
+        int from = Move.unpackFrom(move);
+        int to = Move.unpackTo(move);
+        assert getSquarePiece(from) == piece;
+        assert (own() & SquareSet.of(from)) != 0;
+        assert (own() & SquareSet.of(to)) == 0;
+        fiftyMovesCounter++;
+        enPassantSquare = State.NO_EN_PASSANT;
+        if (type == Move.EN_PASSANT) {
+            togglePiece(!isWhite, Piece.PAWN, enPassantCaptureSquare(to));
+            undo.capture = Piece.PAWN;
+        } else {
+            int capture = getSquarePiece(to);
+            assert capture != Piece.KING;
+            if (capture != Piece.EMPTY) {
+                togglePiece(!isWhite, capture, to);
+                availableCastlings &= ~Castling.ofSquare(to);
+                undo.capture = capture;
+            }
+        }
+        move(type, piece, from, to);
+        piecesHash ^= moveHash(type, piece, from, to);
+        if (piece == Piece.PAWN || undo.capture != Piece.EMPTY) {
+            fiftyMovesCounter = 0;
+        }
+        // same rules as State, losing castling rights is irreversible
+        if (type == Move.DOUBLE) {
+            updateEnPassant(from, to);
+        } else if (piece == Piece.KING) {
+            removeCastlings(isWhite ? Castling.OWN : Castling.OPP);
+        } else if (piece == Piece.ROOK) {
+            removeCastlings(Castling.ofSquare(from));
+        }
+        isWhite = !isWhite;
+        assert assertValid();
+    }
+
+    public void undo(int move, UndoInfo undo) {
+        isWhite = !isWhite;
+        int to = Move.unpackTo(move);
+        move(Move.unpackType(move), Move.unpackPiece(move), Move.unpackFrom(move), to);
+        if (undo.capture != Piece.EMPTY) {
+            int captureSquare = Move.unpackType(move) == Move.EN_PASSANT ? enPassantCaptureSquare(to) : to;
+            togglePieces(!isWhite, undo.capture, SquareSet.of(captureSquare));
+        }
+        availableCastlings = undo.availableCastlings;
+        enPassantSquare = undo.enPassantSquare;
+        fiftyMovesCounter = undo.fiftyMovesCounter;
+        piecesHash = undo.piecesHash;
+        assert assertValid();
+    }
+
+    private void removeCastlings(int castlings) {
+        if ((availableCastlings & castlings) != 0) {
+            availableCastlings &= ~castlings;
+            fiftyMovesCounter = 0;
+        }
+    }
+
+    private void updateEnPassant(int from, int to) {
+        // same rules as State, the en passant square is only set when the capture is legal
+        long opponentPawns = opp() & pawns & (SquareSet.of(to - 1) | SquareSet.of(to + 1)) & SquareSet.rankOf(to);
+        int square = (from + to) >>> 1;
+        int oppKingSquare = Square.firstOf(kings & opp());
+        while (opponentPawns != 0) {
+            long oppPawn = SquareSet.firstOf(opponentPawns);
+            opponentPawns ^= oppPawn;
+            long occ = occupied() ^ (oppPawn | SquareSet.of(square) | SquareSet.of(to));
+            if ((PieceSquareSet.rookRays(oppKingSquare, occ) & (rooks | queens) & own()) != 0
+                    || (PieceSquareSet.bishopRays(oppKingSquare, occ) & (bishops | queens) & own()) != 0) {
+                // en passant is pinned and can't be used
+                continue;
+            }
+            enPassantSquare = square;
+            break;
+        }
+    }
+
+    /***
+     * moves the pieces of the side to move without captures and leaves the hash untouched, applying it twice undoes it
+     */
+    private void move(int type, int piece, int from, int to) {
+        switch (type) {
+            case Move.DEFAULT, Move.DOUBLE, Move.EN_PASSANT -> togglePieces(isWhite, piece, SquareSet.of(from) | SquareSet.of(to));
+            case Move.CASTLING -> {
+                togglePieces(isWhite, piece, SquareSet.of(from) | SquareSet.of(to));
+                togglePieces(isWhite, Piece.ROOK, SquareSet.of(castlingRookFrom(from, to)) | SquareSet.of(castlingRookTo(from, to)));
+            }
+            default -> {
+                togglePieces(isWhite, Piece.PAWN, SquareSet.of(from));
+                togglePieces(isWhite, promotionPiece(type), SquareSet.of(to));
+            }
+        }
+    }
+
+    /***
+     * hash change of move(...)
+     */
+    private long moveHash(int type, int piece, int from, int to) {
+        return switch (type) {
+            case Move.DEFAULT, Move.DOUBLE, Move.EN_PASSANT -> zobrist.pieceHash(isWhite, piece, from) ^ zobrist.pieceHash(isWhite, piece, to);
+            case Move.CASTLING -> zobrist.pieceHash(isWhite, piece, from) ^ zobrist.pieceHash(isWhite, piece, to)
+                    ^ zobrist.pieceHash(isWhite, Piece.ROOK, castlingRookFrom(from, to)) ^ zobrist.pieceHash(isWhite, Piece.ROOK, castlingRookTo(from, to));
+            default -> zobrist.pieceHash(isWhite, Piece.PAWN, from) ^ zobrist.pieceHash(isWhite, promotionPiece(type), to);
+        };
+    }
+
+    private static int castlingRookFrom(int kingFrom, int kingTo) {
+        int backRank = kingFrom & 0b111000;
+        return kingTo - backRank == Square.C1 ? backRank + Square.A1 : backRank + Square.H1;
+    }
+
+    private static int castlingRookTo(int kingFrom, int kingTo) {
+        int backRank = kingFrom & 0b111000;
+        return kingTo - backRank == Square.C1 ? backRank + Square.D1 : backRank + Square.F1;
+    }
+
+    private static int promotionPiece(int type) {
+        return switch (type) {
+            case Move.PROMOTION_QUEEN -> Piece.QUEEN;
+            case Move.PROMOTION_ROOK -> Piece.ROOK;
+            case Move.PROMOTION_BISHOP -> Piece.BISHOP;
+            case Move.PROMOTION_KNIGHT -> Piece.KNIGHT;
+            default -> throw new AssertionError(type);
+        };
+    }
+
+    /***
+     * square of the pawn which is captured by the side to move with an en passant move to the given square
+     */
+    int enPassantCaptureSquare(int enPassantSquare) {
+        return isWhite ? enPassantSquare - 8 : enPassantSquare + 8;
+    }
+
+    public boolean assertValid() {
+        assert SquareSet.count(white & kings) == 1;
+        assert SquareSet.count(black & kings) == 1;
+        assert (white & black) == 0;
+        assert (white | black) == (pawns | kings | knights | bishops | rooks | queens);
+        assert (white ^ black) == (pawns ^ kings ^ knights ^ bishops ^ rooks ^ queens);
+        assert enPassantSquare == State.NO_EN_PASSANT || Square.isValid(enPassantSquare);
+        long expectedPiecesHash = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = getSquarePiece(square);
+            if (piece != Piece.EMPTY) {
+                expectedPiecesHash ^= zobrist.pieceHash((SquareSet.of(square) & white) != 0, piece, square);
+            }
+        }
+        assert expectedPiecesHash == piecesHash;
+        return true;
+    }
+
+    public long occupied() {
+        return white | black;
+    }
+
+    public long own() {
+        return isWhite ? white : black;
+    }
+
+    public long opp() {
+        return isWhite ? black : white;
+    }
+
+    public long white() {
+        return white;
+    }
+
+    public long black() {
+        return black;
+    }
+
+    public long pawns() {
+        return pawns;
+    }
+
+    public long kings() {
+        return kings;
+    }
+
+    public long knights() {
+        return knights;
+    }
+
+    public long bishops() {
+        return bishops;
+    }
+
+    public long rooks() {
+        return rooks;
+    }
+
+    public long queens() {
+        return queens;
+    }
+}
@@ -0,0 +1,22 @@
+package com.etherblood.etherchess.engine;
+
+/***
+ * checks and pins of the side to move, computed once per position and shared by the staged move generators
+ */
+public class CheckInfo {
+
+    // attacked squares of the own king zone, squares outside the king-zone are undefined
+    public long kingDangerSquares;
+    public long checkers;
+    // legal targets for non-king moves, restricted when in check
+    public long pushMask;
+    public long captureMask;
+
+    public long pinnedMask;
+    // ray from the own king up to and including the pinning piece, indexed by Direction, 0 if nothing is pinned there
+    public final long[] pinRays = new long[8];
+
+    public boolean isCheck() {
+        return checkers != 0;
+    }
+}
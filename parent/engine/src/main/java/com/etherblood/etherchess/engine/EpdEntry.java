@@ -0,0 +1,31 @@
+package com.etherblood.etherchess.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * everything of an EPD (or FEN) line which is not part of the position, reused for every line by the EpdReader
+ */
+public class EpdEntry {
+
+    public static final int MAX_PERFT_DEPTH = 32;
+    public static final long NO_PERFT = -1;
+
+    public int fullMoveNumber;
+    public String id;
+    public String comment;
+    public final List<String> bestMoves = new ArrayList<>();
+    public final List<String> avoidMoves = new ArrayList<>();
+    // perft[depth] is the expected node count of operation D<depth> or NO_PERFT
+    public final long[] perft = new long[MAX_PERFT_DEPTH + 1];
+
+    public void clear() {
+        fullMoveNumber = 1;
+        id = null;
+        comment = null;
+        bestMoves.clear();
+        avoidMoves.clear();
+        Arrays.fill(perft, NO_PERFT);
+    }
+}
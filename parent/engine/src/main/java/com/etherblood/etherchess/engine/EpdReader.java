@@ -0,0 +1,373 @@
+package com.etherblood.etherchess.engine;
+
+import com.etherblood.etherchess.engine.util.Castling;
+import com.etherblood.etherchess.engine.util.Piece;
+import com.etherblood.etherchess.engine.util.Square;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/***
+ * reads FEN or EPD lines (one position per line) straight from bytes into a reused State and EpdEntry
+ * supported EPD operations are bm, am, id, c0, hmvc, fmvn and D1..Dn perft counts, others are skipped
+ */
+public class EpdReader {
+
+    // a single mapping is limited to 2 GiB, files are mapped in chunks of at most 1 GiB
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+    private final ByteBuffer buffer;
+    private int position;
+
+    public EpdReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+    }
+
+    /***
+     * maps the file in chunks which end at line breaks, every chunk can be read by its own EpdReader
+     */
+    public static List<ByteBuffer> map(Path path) throws IOException {
+        return map(path, MAX_CHUNK_BYTES);
+    }
+
+    static List<ByteBuffer> map(Path path, int maxChunkBytes) throws IOException {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            while (offset < size) {
+                int length = (int) Math.min(maxChunkBytes, size - offset);
+                ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                if (offset + length < size) {
+                    // the line which does not fit completely starts the next chunk
+                    while (length > 0 && chunk.get(length - 1) != '\n') {
+                        length--;
+                    }
+                    if (length == 0) {
+                        throw new IOException("Line at byte " + offset + " of " + path + " is longer than " + maxChunkBytes + " bytes.");
+                    }
+                }
+                chunks.add(chunk.slice(0, length));
+                offset += length;
+            }
+        }
+        return chunks;
+    }
+
+    /***
+     * splits the buffer into up to 'count' slices which end at line breaks
+     */
+    public static List<ByteBuffer> slices(ByteBuffer buffer, int count) {
+        List<ByteBuffer> result = new ArrayList<>();
+        int begin = buffer.position();
+        int end = buffer.limit();
+        int start = begin;
+        for (int i = 1; i <= count; i++) {
+            int sliceEnd = Math.max(start, (int) (begin + (long) (end - begin) * i / count));
+            while (sliceEnd < end && (sliceEnd == start || buffer.get(sliceEnd - 1) != '\n')) {
+                sliceEnd++;
+            }
+            if (sliceEnd > start) {
+                result.add(buffer.slice(start, sliceEnd - start));
+            }
+            start = sliceEnd;
+        }
+        return result;
+    }
+
+    /***
+     * reads all lines on the common fork join pool, one State and EpdEntry per slice
+     * the consumer is called concurrently and must not keep references to its arguments
+     */
+    public static void parallelForEach(ByteBuffer buffer, MirrorZobrist zobrist, BiConsumer<State, EpdEntry> consumer) {
+        parallelForEach(List.of(buffer), zobrist, consumer);
+    }
+
+    /***
+     * same as above for the chunks of a mapped file
+     */
+    public static void parallelForEach(List<ByteBuffer> chunks, MirrorZobrist zobrist, BiConsumer<State, EpdEntry> consumer) {
+        int slicesPerChunk = 4 * Runtime.getRuntime().availableProcessors();
+        chunks.stream().flatMap(chunk -> slices(chunk, slicesPerChunk).stream()).toList().parallelStream().forEach(slice -> {
+            EpdReader reader = new EpdReader(slice);
+            State state = new State(zobrist);
+            EpdEntry entry = new EpdEntry();
+            while (reader.next(state, entry)) {
+                consumer.accept(state, entry);
+            }
+        });
+    }
+
+    /***
+     * parses the next non-empty line, returns false once the buffer is exhausted
+     */
+    public boolean next(State state, EpdEntry entry) {
+        skipWhitespace(true);
+        if (position >= buffer.limit()) {
+            return false;
+        }
+        state.clear();
+        entry.clear();
+        parsePieces(state);
+        boolean isWhite = parseSideToMove();
+        state.availableCastlings = parseCastling();
+        state.enPassantSquare = parseEnPassant();
+
+        skipWhitespace(false);
+        if (isDigit(peek())) {
+            // FEN move counters
+            state.fiftyMovesCounter = (int) parseNumber();
+            skipWhitespace(false);
+            if (isDigit(peek())) {
+                entry.fullMoveNumber = (int) parseNumber();
+            }
+        } else {
+            parseOperations(state, entry);
+        }
+        skipLine();
+        if (!isWhite) {
+            state.mirrorSides();
+        }
+        assert state.assertValid();
+        return true;
+    }
+
+    private void parsePieces(State state) {
+        int x = 0;
+        int y = 7;
+        while (true) {
+            byte c = buffer.get(position++);
+            if (c == ' ') {
+                break;
+            }
+            if (c == '/') {
+                x = 0;
+                y--;
+            } else if (c >= '1' && c <= '8') {
+                x += c - '0';
+            } else {
+                int piece = Piece.fromCharacter((char) c);
+                if (piece == Piece.EMPTY || x > 7 || y < 0) {
+                    throw invalid("piece placement");
+                }
+                state.togglePiece(c < 'a', piece, Square.of(x, y));
+                x++;
+            }
+        }
+    }
+
+    private boolean parseSideToMove() {
+        byte c = buffer.get(position++);
+        expect(' ');
+        if (c == 'w') {
+            return true;
+        }
+        if (c == 'b') {
+            return false;
+        }
+        throw invalid("side to move");
+    }
+
+    private int parseCastling() {
+        int castling = Castling.NONE;
+        while (true) {
+            byte c = buffer.get(position++);
+            switch (c) {
+                case 'K' -> castling |= Castling.H1;
+                case 'Q' -> castling |= Castling.A1;
+                case 'k' -> castling |= Castling.H8;
+                case 'q' -> castling |= Castling.A8;
+                case '-' -> {
+                }
+                case ' ' -> {
+                    return castling;
+                }
+                default -> throw invalid("castling");
+            }
+        }
+    }
+
+    private int parseEnPassant() {
+        byte c = buffer.get(position++);
+        if (c == '-') {
+            return State.NO_EN_PASSANT;
+        }
+        byte rank = buffer.get(position++);
+        if (c < 'a' || c > 'h' || rank < '1' || rank > '8') {
+            throw invalid("en passant square");
+        }
+        return Square.of(c - 'a', rank - '1');
+    }
+
+    private void parseOperations(State state, EpdEntry entry) {
+        while (true) {
+            skipWhitespace(false);
+            if (isLineEnd(peek())) {
+                return;
+            }
+            int opcodeStart = position;
+            while (!isLineEnd(peek()) && peek() != ' ' && peek() != ';') {
+                position++;
+            }
+            int opcodeLength = position - opcodeStart;
+            byte first = buffer.get(opcodeStart);
+            if (first == 'D' && opcodeLength > 1 && isDigit(buffer.get(opcodeStart + 1))) {
+                int depth = (int) parseNumber(opcodeStart + 1, position);
+                if (depth > EpdEntry.MAX_PERFT_DEPTH) {
+                    throw invalid("perft depth");
+                }
+                skipWhitespace(false);
+                entry.perft[depth] = parseNumber();
+            } else if (matches(opcodeStart, opcodeLength, "bm")) {
+                parseOperands(entry.bestMoves);
+            } else if (matches(opcodeStart, opcodeLength, "am")) {
+                parseOperands(entry.avoidMoves);
+            } else if (matches(opcodeStart, opcodeLength, "id")) {
+                entry.id = parseOperand();
+            } else if (matches(opcodeStart, opcodeLength, "c0")) {
+                entry.comment = parseOperand();
+            } else if (matches(opcodeStart, opcodeLength, "hmvc")) {
+                skipWhitespace(false);
+                state.fiftyMovesCounter = (int) parseNumber();
+            } else if (matches(opcodeStart, opcodeLength, "fmvn")) {
+                skipWhitespace(false);
+                entry.fullMoveNumber = (int) parseNumber();
+            }
+            // skip remaining operands of this operation, including unknown ones
+            while (!isLineEnd(peek()) && peek() != ';') {
+                if (peek() == '"') {
+                    parseOperand();
+                } else {
+                    position++;
+                }
+            }
+            if (peek() == ';') {
+                position++;
+            }
+        }
+    }
+
+    private void parseOperands(List<String> out) {
+        while (true) {
+            skipWhitespace(false);
+            if (isLineEnd(peek()) || peek() == ';') {
+                return;
+            }
+            out.add(parseOperand());
+        }
+    }
+
+    private String parseOperand() {
+        skipWhitespace(false);
+        int start = position;
+        if (peek() == '"') {
+            start++;
+            position++;
+            while (!isLineEnd(peek()) && peek() != '"') {
+                position++;
+            }
+            String operand = string(start, position);
+            if (peek() == '"') {
+                position++;
+            }
+            return operand;
+        }
+        while (!isLineEnd(peek()) && peek() != ' ' && peek() != ';') {
+            position++;
+        }
+        return string(start, position);
+    }
+
+    private long parseNumber() {
+        int start = position;
+        while (isDigit(peek())) {
+            position++;
+        }
+        if (start == position) {
+            throw invalid("number");
+        }
+        return parseNumber(start, position);
+    }
+
+    private long parseNumber(int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            byte c = buffer.get(i);
+            if (!isDigit(c)) {
+                throw invalid("number");
+            }
+            result = 10 * result + (c - '0');
+        }
+        return result;
+    }
+
+    private boolean matches(int start, int length, String opcode) {
+        if (length != opcode.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != opcode.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String string(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private void expect(char c) {
+        if (buffer.get(position++) != c) {
+            throw invalid("'" + c + "'");
+        }
+    }
+
+    private void skipWhitespace(boolean lineBreaks) {
+        while (position < buffer.limit()) {
+            byte c = buffer.get(position);
+            if (c == ' ' || c == '\t' || (lineBreaks && (c == '\n' || c == '\r'))) {
+                position++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipLine() {
+        while (position < buffer.limit() && buffer.get(position++) != '\n') {
+            // skip
+        }
+    }
+
+    /***
+     * returns '\n' at the end of the buffer
+     */
+    private byte peek() {
+        if (position < buffer.limit()) {
+            return buffer.get(position);
+        }
+        return '\n';
+    }
+
+    private static boolean isLineEnd(byte c) {
+        return c == '\n' || c == '\r';
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private IllegalArgumentException invalid(String what) {
+        return new IllegalArgumentException("Invalid " + what + " at byte " + position);
+    }
+}
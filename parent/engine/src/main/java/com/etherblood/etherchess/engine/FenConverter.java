@@ -41,17 +41,58 @@ public class FenConverter {
                 builder.append(empty);
             }
         }
+        int castling = state.availableCastlings;
+        if (!state.isWhite) {
+            castling = Castling.mirrorY(castling);
+        }
+        int enPassant = state.enPassantSquare;
+        if (!state.isWhite && enPassant != 0) {
+            enPassant = Square.mirrorY(enPassant);
+        }
+        appendFields(builder, state.isWhite, castling, enPassant, state.fiftyMovesCounter);
+        return builder.toString();
+    }
+
+    public String toFen(AbsoluteState state) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int y = 7; y >= 0; y--) {
+            if (y != 7) {
+                builder.append('/');
+            }
+            int empty = 0;
+            for (int x = 0; x < 8; x++) {
+                int square = Square.of(x, y);
+                int piece = state.getSquarePiece(square);
+                if (piece == Piece.EMPTY) {
+                    empty++;
+                } else {
+                    if (empty != 0) {
+                        builder.append(empty);
+                        empty = 0;
+                    }
+                    builder.append(Piece.toCharacter(piece, (state.white() & SquareSet.of(square)) != 0));
+                }
+            }
+            if (empty != 0) {
+                builder.append(empty);
+            }
+        }
+        appendFields(builder, state.isWhite, state.availableCastlings, state.enPassantSquare, state.fiftyMovesCounter);
+        return builder.toString();
+    }
+
+    /***
+     * everything after the pieces, castling and en passant square are absolute (white perspective)
+     */
+    private void appendFields(StringBuilder builder, boolean isWhite, int castling, int enPassant, int fiftyMovesCounter) {
         builder.append(' ');
-        if (state.isWhite) {
+        if (isWhite) {
             builder.append('w');
         } else {
             builder.append('b');
         }
         builder.append(' ');
-        int castling = state.availableCastlings;
-        if (!state.isWhite) {
-            castling = Castling.mirrorY(castling);
-        }
         if (castling == 0) {
             builder.append('-');
         } else {
@@ -62,36 +103,31 @@ public class FenConverter {
                 builder.append('Q');
             }
             if ((castling & Castling.H8) != 0) {
-                builder.append('K');
+                builder.append('k');
             }
             if ((castling & Castling.A8) != 0) {
-                builder.append('Q');
+                builder.append('q');
             }
         }
         builder.append(' ');
-        int enPassant = state.enPassantSquare;
-        if (!state.isWhite && enPassant != 0) {
-            enPassant = Square.mirrorY(enPassant);
-        }
         if (enPassant != 0) {
             builder.append(Square.toString(enPassant));
         } else {
             builder.append('-');
         }
         builder.append(' ');
-        builder.append(state.fiftyMovesCounter);
+        builder.append(fiftyMovesCounter);
         builder.append(' ');
         builder.append(1);// TODO: correct ply count
-        return builder.toString();
     }
 
     public void fromFen(State state, String fen) {
         state.clear();
 
         String[] parts = fen.split(" ");
-        fenPieces(state, parts[0].split("/"));
-        fenCastling(state, parts[2]);
-        fenPassant(state, parts[3]);
+        fenPieces(state::togglePiece, parts[0].split("/"));
+        state.availableCastlings = fenCastling(parts[2]);
+        state.enPassantSquare = fenPassant(parts[3]);
         if (parts.length >= 5) {
             state.fiftyMovesCounter = Byte.parseByte(parts[4]);
         }
@@ -99,13 +135,28 @@ public class FenConverter {
         assert state.assertValid();
     }
 
-    private void fenPassant(State state, String string) {
+    public void fromFen(AbsoluteState state, String fen) {
+        state.clear();
+
+        String[] parts = fen.split(" ");
+        fenPieces(state::togglePiece, parts[0].split("/"));
+        state.availableCastlings = fenCastling(parts[2]);
+        state.enPassantSquare = fenPassant(parts[3]);
+        if (parts.length >= 5) {
+            state.fiftyMovesCounter = Byte.parseByte(parts[4]);
+        }
+        state.isWhite = !parts[1].equals("b");
+        assert state.assertValid();
+    }
+
+    private int fenPassant(String string) {
         if (string.length() == 2) {
-            state.enPassantSquare = Square.parse(string);
+            return Square.parse(string);
         }
+        return State.NO_EN_PASSANT;
     }
 
-    private void fenCastling(State state, String string) {
+    private int fenCastling(String string) {
         int castleIndex = 0;
         if (string.contains("k")) {
             castleIndex |= Castling.H8;
@@ -119,7 +170,7 @@ public class FenConverter {
         if (string.contains("Q")) {
             castleIndex |= Castling.A1;
         }
-        state.availableCastlings = castleIndex;
+        return castleIndex;
     }
 
     private void fenPlayer(State state, String part) {
@@ -128,63 +179,30 @@ public class FenConverter {
         }
     }
 
-    private void fenPieces(State state, String[] rows) {
+    private void fenPieces(PieceToggle state, String[] rows) {
         for (int y = 0; y < 8; y++) {
             String row = rows[7 - y];
             int x = 0;
             for (int i = 0; i < row.length(); i++) {
                 char c = row.charAt(i);
                 int square = Square.of(x, y);
-                switch (c) {
-                    case 'p':
-                        state.togglePiece(false, Piece.PAWN, square);
-                        break;
-                    case 'k':
-                        state.togglePiece(false, Piece.KING, square);
-                        break;
-                    case 'b':
-                        state.togglePiece(false, Piece.BISHOP, square);
-                        break;
-                    case 'n':
-                        state.togglePiece(false, Piece.KNIGHT, square);
-                        break;
-                    case 'r':
-                        state.togglePiece(false, Piece.ROOK, square);
-                        break;
-                    case 'q':
-                        state.togglePiece(false, Piece.QUEEN, square);
-                        break;
-                    case 'P':
-                        state.togglePiece(true, Piece.PAWN, square);
-                        break;
-                    case 'K':
-                        state.togglePiece(true, Piece.KING, square);
-                        break;
-                    case 'B':
-                        state.togglePiece(true, Piece.BISHOP, square);
-                        break;
-                    case 'N':
-                        state.togglePiece(true, Piece.KNIGHT, square);
-                        break;
-                    case 'R':
-                        state.togglePiece(true, Piece.ROOK, square);
-                        break;
-                    case 'Q':
-                        state.togglePiece(true, Piece.QUEEN, square);
-                        break;
-                    case '1':
-                    case '2':
-                    case '3':
-                    case '4':
-                    case '5':
-                    case '6':
-                    case '7':
-                    case '8':
-                        x += c - '1';
-                        break;
+                if (c >= '1' && c <= '8') {
+                    x += c - '1';
+                } else {
+                    int piece = Piece.fromCharacter(c);
+                    if (piece != Piece.EMPTY) {
+                        state.togglePiece(Character.isUpperCase(c), piece, square);
+                    }
                 }
                 x++;
             }
         }
     }
+
+    /***
+     * pieces are toggled before the side to move is applied, so 'white' and 'own' are the same here
+     */
+    private interface PieceToggle {
+        void togglePiece(boolean white, int piece, int square);
+    }
 }
@@ -1,5 +1,6 @@
 package com.etherblood.etherchess.engine;
 
+import com.etherblood.etherchess.engine.util.Castling;
 import com.etherblood.etherchess.engine.util.Piece;
 import com.etherblood.etherchess.engine.util.Square;
 import java.util.function.LongSupplier;
@@ -32,6 +33,19 @@ public class MirrorZobrist {
         return hash;
     }
 
+    /***
+     * hash of a position stored from whites perspective (see AbsoluteState), equal to State.hash() of the same position
+     */
+    public long absoluteHash(boolean isWhite, long whitePiecesHash, int enPassant, int castling) {
+        if (isWhite) {
+            return whitePiecesHash ^ metaHash(enPassant, castling);
+        }
+        if (enPassant != State.NO_EN_PASSANT) {
+            enPassant = Square.mirrorY(enPassant);
+        }
+        return mirror(whitePiecesHash) ^ metaHash(enPassant, Castling.mirrorY(castling));
+    }
+
     public long pieceHash(boolean isOwn, int piece, int square) {
         long[] squareHashes = pieceSquareHashes[piece - Piece.PAWN];
         return squareHash(squareHashes, isOwn, square);
@@ -23,6 +23,8 @@ public record Move(
     public static final int PROMOTION_KNIGHT = 6;
     public static final int CASTLING = 7;
 
+    // packed 32 bit value which is never a valid move, since valid moves always have from != to
+    public static final int NONE = 0;
 
     public Move {
         assert Square.isValid(from);
@@ -33,14 +35,38 @@ public record Move(
     }
 
     public static Move unpack32(int raw) {
-        if (raw == 0) {
+        if (raw == NONE) {
             return null;
         }
-        return new Move((raw >>> 24) & 0xff, (raw >>> 16) & 0xff, (raw >>> 8) & 0xff, (raw >>> 0) & 0xff);
+        return new Move(unpackType(raw), unpackPiece(raw), unpackFrom(raw), unpackTo(raw));
     }
 
     public static int pack32(Move move) {
-        return (move.type << 24) | (move.piece << 16) | (move.from << 8) | (move.to << 0);
+        return pack32(move.type, move.piece, move.from, move.to);
+    }
+
+    public static int pack32(int type, int piece, int from, int to) {
+        assert Square.isValid(from);
+        assert Square.isValid(to);
+        assert Piece.isValid(piece) && piece != Piece.EMPTY;
+        assert from != to;
+        return (type << 24) | (piece << 16) | (from << 8) | (to << 0);
+    }
+
+    public static int unpackType(int raw) {
+        return (raw >>> 24) & 0xff;
+    }
+
+    public static int unpackPiece(int raw) {
+        return (raw >>> 16) & 0xff;
+    }
+
+    public static int unpackFrom(int raw) {
+        return (raw >>> 8) & 0xff;
+    }
+
+    public static int unpackTo(int raw) {
+        return (raw >>> 0) & 0xff;
     }
 
     public static Move unpack16(State state, int raw) {
@@ -74,48 +100,159 @@ public record Move(
     }
 
     public void applyTo(State state) {
+        applyTo(state, type, piece, from, to);
+    }
+
+    public void applyTo(State state, UndoInfo undo) {
+        state.save(undo);
+        undo.capture = applyTo(state, type, piece, from, to);
+    }
+
+    public void undo(State state, UndoInfo undo) {
+        undo(state, type, piece, from, to, undo);
+    }
+
+    public static void applyTo(int move, State state) {
+        applyTo(state, unpackType(move), unpackPiece(move), unpackFrom(move), unpackTo(move));
+    }
+
+    public static void applyTo(int move, State state, UndoInfo undo) {
+        state.save(undo);
+        undo.capture = applyTo(state, unpackType(move), unpackPiece(move), unpackFrom(move), unpackTo(move));
+    }
+
+    /***
+     * reverts a move previously applied with applyTo(move, state, undo)
+     */
+    public static void undo(int move, State state, UndoInfo undo) {
+        undo(state, unpackType(move), unpackPiece(move), unpackFrom(move), unpackTo(move), undo);
+    }
+
+    /***
+     * passes the turn: only the side to move and the hash change, en passant is no longer possible
+     */
+    public static void applyNullTo(State state) {
+        state.fiftyMovesCounter++;
+        state.enPassantSquare = State.NO_EN_PASSANT;
+        state.mirrorSides();
+    }
+
+    public static void applyNullTo(State state, UndoInfo undo) {
+        state.save(undo);
+        undo.capture = Piece.EMPTY;
+        applyNullTo(state);
+    }
+
+    /***
+     * reverts a null move previously applied with applyNullTo(state, undo)
+     */
+    public static void undoNull(State state, UndoInfo undo) {
+        state.mirrorSides();
+        state.restore(undo);
+        assert state.assertValid();
+    }
+
+    /***
+     * returns the captured piece or Piece.EMPTY
+     */
+    private static int applyTo(State state, int type, int piece, int from, int to) {
         assert state.getSquarePiece(from) == piece;
         assert (state.own() & SquareSet.of(from)) != 0;
         assert (state.own() & SquareSet.of(to)) == 0;
         state.fiftyMovesCounter++;
+        int capture;
         switch (type) {
             case DEFAULT:
-                defaultMove(state);
+                capture = applyDefault(state, piece, from, to);
                 assert state.assertValid();
                 break;
             case DOUBLE:
-                doubleMove(state);
+                capture = applyDouble(state, piece, from, to);
                 assert state.assertValid();
                 break;
             case EN_PASSANT:
-                enPassant(state);
+                capture = applyEnPassant(state, piece, from, to);
                 assert state.assertValid();
                 break;
             case PROMOTION_QUEEN:
-                promotion(state, Piece.QUEEN);
+                capture = applyPromotion(state, piece, from, to, Piece.QUEEN);
                 assert state.assertValid();
                 break;
             case PROMOTION_ROOK:
-                promotion(state, Piece.ROOK);
+                capture = applyPromotion(state, piece, from, to, Piece.ROOK);
                 assert state.assertValid();
                 break;
             case PROMOTION_BISHOP:
-                promotion(state, Piece.BISHOP);
+                capture = applyPromotion(state, piece, from, to, Piece.BISHOP);
                 assert state.assertValid();
                 break;
             case PROMOTION_KNIGHT:
-                promotion(state, Piece.KNIGHT);
+                capture = applyPromotion(state, piece, from, to, Piece.KNIGHT);
                 assert state.assertValid();
                 break;
             case CASTLING:
-                castling(state);
+                capture = applyCastling(state, piece, from, to);
                 assert state.assertValid();
                 break;
+            default:
+                throw new AssertionError(type);
         }
         state.mirrorSides();
+        return capture;
+    }
+
+    private static void undo(State state, int type, int piece, int from, int to, UndoInfo undo) {
+        state.mirrorSides();
+        // the hash is not updated while moving pieces back, it is restored from the undo info instead
+        switch (type) {
+            case DEFAULT:
+            case DOUBLE:
+                state.togglePieceUnhashed(true, piece, SquareSet.of(from) | SquareSet.of(to));
+                if (undo.capture != Piece.EMPTY) {
+                    state.togglePieceUnhashed(false, undo.capture, SquareSet.of(to));
+                }
+                break;
+            case EN_PASSANT:
+                state.togglePieceUnhashed(true, piece, SquareSet.of(from) | SquareSet.of(to));
+                state.togglePieceUnhashed(false, Piece.PAWN, SquareSet.of(to - 8));
+                break;
+            case PROMOTION_QUEEN:
+                undoPromotion(state, from, to, Piece.QUEEN, undo.capture);
+                break;
+            case PROMOTION_ROOK:
+                undoPromotion(state, from, to, Piece.ROOK, undo.capture);
+                break;
+            case PROMOTION_BISHOP:
+                undoPromotion(state, from, to, Piece.BISHOP, undo.capture);
+                break;
+            case PROMOTION_KNIGHT:
+                undoPromotion(state, from, to, Piece.KNIGHT, undo.capture);
+                break;
+            case CASTLING:
+                state.togglePieceUnhashed(true, piece, SquareSet.of(from) | SquareSet.of(to));
+                if (to == Square.C1) {
+                    state.togglePieceUnhashed(true, Piece.ROOK, SquareSet.A1 | SquareSet.D1);
+                } else {
+                    assert to == Square.G1;
+                    state.togglePieceUnhashed(true, Piece.ROOK, SquareSet.H1 | SquareSet.F1);
+                }
+                break;
+            default:
+                throw new AssertionError(type);
+        }
+        state.restore(undo);
+        assert state.assertValid();
+    }
+
+    private static void undoPromotion(State state, int from, int to, int promotion, int capture) {
+        state.togglePieceUnhashed(true, promotion, SquareSet.of(to));
+        state.togglePieceUnhashed(true, Piece.PAWN, SquareSet.of(from));
+        if (capture != Piece.EMPTY) {
+            state.togglePieceUnhashed(false, capture, SquareSet.of(to));
+        }
     }
 
-    private void castling(State state) {
+    private static int applyCastling(State state, int piece, int from, int to) {
         assert piece == Piece.KING;
         assert from == Square.E1;
 
@@ -142,9 +279,10 @@ public record Move(
         state.fiftyMovesCounter = 0;
         state.enPassantSquare = 0;
         state.availableCastlings &= ~Castling.OWN;
+        return Piece.EMPTY;
     }
 
-    private void doubleMove(State state) {
+    private static int applyDouble(State state, int piece, int from, int to) {
         assert piece == Piece.PAWN;
 
         state.enPassantSquare = 0;
@@ -168,9 +306,10 @@ public record Move(
             state.enPassantSquare = enPassantSquare;
             break;
         }
+        return Piece.EMPTY;
     }
 
-    private void enPassant(State state) {
+    private static int applyEnPassant(State state, int piece, int from, int to) {
         assert state.enPassantSquare == to;
         assert piece == Piece.PAWN;
 
@@ -178,9 +317,10 @@ public record Move(
         state.togglePiece(false, Piece.PAWN, to - 8);
         state.fiftyMovesCounter = 0;
         state.enPassantSquare = 0;
+        return Piece.PAWN;
     }
 
-    private void promotion(State state, int promotion) {
+    private static int applyPromotion(State state, int piece, int from, int to, int promotion) {
         assert piece == Piece.PAWN;
         assert Square.y(to) == 7;
 
@@ -193,9 +333,10 @@ public record Move(
         state.togglePiece(true, promotion, to);
         state.fiftyMovesCounter = 0;
         state.enPassantSquare = 0;
+        return capture;
     }
 
-    private void defaultMove(State state) {
+    private static int applyDefault(State state, int piece, int from, int to) {
         int capture = state.getSquarePiece(to);
         assert capture != Piece.KING;
         if (capture != Piece.EMPTY) {
@@ -226,6 +367,7 @@ public record Move(
             }
         }
         state.enPassantSquare = 0;
+        return capture;
     }
 
     @Override
@@ -12,19 +12,25 @@ import java.util.function.Consumer;
 
 public class MoveGenerator {
 
+    // upper bound for the number of legal moves in any position (the known maximum is 218)
+    public static final int MAX_MOVES = 256;
+    private static final int MAX_PSEUDO_LEGAL_MOVES = 2 * MAX_MOVES;
+
     public static final Move LARGE_CASTLING = new Move(Move.CASTLING, Piece.KING, Square.E1, Square.C1);
     public static final Move SMALL_CASTLING = new Move(Move.CASTLING, Piece.KING, Square.E1, Square.G1);
+    private static final int LARGE_CASTLING_RAW = Move.pack32(LARGE_CASTLING);
+    private static final int SMALL_CASTLING_RAW = Move.pack32(SMALL_CASTLING);
 
     public void generatePseudoLegalMoves(State state, Consumer<Move> out) {
-        long pinnedMask = 0;
-        long pushMask = ~0;
-        long captureMask = ~0;
-        pseudoLegalKingMoves(state, out);
-        pawnMoves(state, state.pawns() & state.own() & ~pinnedMask, pushMask, captureMask, out);
-        knightMoves(state, state.knights() & state.own() & ~pinnedMask, pushMask, captureMask, out);
-        bishopMoves(state, state.bishops() & state.own() & ~pinnedMask, pushMask, captureMask, out);
-        rookMoves(state, state.rooks() & state.own() & ~pinnedMask, pushMask, captureMask, out);
-        queenMoves(state, state.queens() & state.own() & ~pinnedMask, pushMask, captureMask, out);
+        int[] moves = new int[MAX_PSEUDO_LEGAL_MOVES];
+        long targets = ~state.own();
+        int count = pseudoLegalKingMoves(state, moves, 0);
+        count = pawnMoves(state, state.pawns() & state.own(), ~0, ~0, true, true, moves, count);
+        count = knightMoves(state, state.knights() & state.own(), targets, moves, count);
+        count = bishopMoves(state, state.bishops() & state.own(), targets, moves, count);
+        count = rookMoves(state, state.rooks() & state.own(), targets, moves, count);
+        count = queenMoves(state, state.queens() & state.own(), targets, moves, count);
+        accept(moves, count, out);
     }
 
     public List<Move> generateLegalMoves(State state) {
@@ -34,58 +40,299 @@ public class MoveGenerator {
     }
 
     public void generateLegalMoves(State state, Consumer<Move> out) {
-        assert state.assertValid();
-        long kingDangerSquares = kingDangerSquares(state);
+        int[] moves = new int[MAX_MOVES];
+        int count = generateLegalMoves(state, moves);
+        accept(moves, count, out);
+    }
+
+    private static void accept(int[] moves, int count, Consumer<Move> out) {
+        for (int i = 0; i < count; i++) {
+            out.accept(Move.unpack32(moves[i]));
+        }
+    }
+
+    /***
+     * writes packed legal moves (see Move.pack32) into the buffer, starting at index 0
+     * the buffer must have room for at least MAX_MOVES entries
+     * returns the number of moves written
+     * allocates a CheckInfo per call, hot loops should use the overload with a reused one
+     */
+    public int generateLegalMoves(State state, int[] out) {
+        return generateLegalMoves(state, new CheckInfo(), out);
+    }
+
+    /***
+     * same as generateLegalMoves(State, int[]), the check info is computed into the given one
+     * it is not read after this returns, so recursive callers may share one per thread
+     */
+    public int generateLegalMoves(State state, CheckInfo info, int[] out) {
+        computeCheckInfo(state, info);
+        return generate(state, info, true, true, out, 0);
+    }
+
+    /***
+     * captures (including en passant) and all promotions, quiet or not
+     */
+    public int generateCaptures(State state, CheckInfo info, int[] out) {
+        return generate(state, info, true, false, out, 0);
+    }
 
-        legalKingMoves(state, kingDangerSquares, out);
-        long captureMask = state.opp();
-        long pushMask = ~0;
+    /***
+     * all moves not returned by generateCaptures, including castlings and double pawn pushes
+     */
+    public int generateQuiets(State state, CheckInfo info, int[] out) {
+        return generate(state, info, false, true, out, 0);
+    }
+
+    /***
+     * all legal moves of a position where the own king is in check
+     */
+    public int generateEvasions(State state, CheckInfo info, int[] out) {
+        assert info.isCheck();
+        return generate(state, info, true, true, out, 0);
+    }
+
+    /***
+     * same as the number of moves generated by generateLegalMoves, without writing them
+     * allocates a CheckInfo per call, hot loops should use the overload with a reused one
+     */
+    public int countLegalMoves(State state) {
+        CheckInfo info = new CheckInfo();
+        computeCheckInfo(state, info);
+        return countLegalMoves(state, info);
+    }
+
+    /***
+     * the check info must already be computed for this state (see computeCheckInfo)
+     */
+    public int countLegalMoves(State state, CheckInfo info) {
+        int kingSquare = Square.firstOf(state.kings() & state.own());
+        int count = SquareSet.count(PieceSquareSet.kingMoves(kingSquare) & ~(state.own() | info.kingDangerSquares));
+        if (isLegalLargeCastling(state, info)) {
+            count++;
+        }
+        if (isLegalSmallCastling(state, info)) {
+            count++;
+        }
+        if (info.pushMask == 0 && info.captureMask == 0) {
+            return count;
+        }
+        long occupied = state.occupied();
+        long targets = (~occupied & info.pushMask) | (state.opp() & info.captureMask);
+        for (int direction = Direction.NORTH; direction <= Direction.NORTH_WEST; direction++) {
+            long pinRay = info.pinRays[direction];
+            if (pinRay != 0) {
+                long pinned = pinRay & state.own();
+                if ((pinned & state.pawns()) != 0) {
+                    count += countPawnMoves(state, pinned, info.pushMask & pinRay, info.captureMask & pinRay);
+                } else if ((pinned & state.queens()) != 0
+                        || (pinned & state.rooks()) != 0 && !Direction.isDiagonal(direction)
+                        || (pinned & state.bishops()) != 0 && Direction.isDiagonal(direction)) {
+                    count += SquareSet.count(pinRay & targets);
+                }
+            }
+        }
+
+        long sourceMask = state.own() & ~info.pinnedMask;
+        count += countPawnMoves(state, sourceMask & state.pawns(), info.pushMask, info.captureMask);
+        long knights = sourceMask & state.knights();
+        while (knights != 0) {
+            count += SquareSet.count(PieceSquareSet.knightMoves(Square.firstOf(knights)) & targets);
+            knights = SquareSet.clearFirst(knights);
+        }
+        long bishops = sourceMask & state.bishops();
+        while (bishops != 0) {
+            count += SquareSet.count(PieceSquareSet.bishopRays(Square.firstOf(bishops), occupied) & targets);
+            bishops = SquareSet.clearFirst(bishops);
+        }
+        long rooks = sourceMask & state.rooks();
+        while (rooks != 0) {
+            count += SquareSet.count(PieceSquareSet.rookRays(Square.firstOf(rooks), occupied) & targets);
+            rooks = SquareSet.clearFirst(rooks);
+        }
+        long queens = sourceMask & state.queens();
+        while (queens != 0) {
+            count += SquareSet.count(PieceSquareSet.queenRays(Square.firstOf(queens), occupied) & targets);
+            queens = SquareSet.clearFirst(queens);
+        }
+        return count;
+    }
+
+    private int countPawnMoves(State state, long ownPawns, long pushMask, long captureMask) {
+        long pushes = (ownPawns << 8) & ~state.occupied();
+        long doubles = (pushes << 8) & ~state.occupied() & SquareSet.RANK_4 & pushMask;
+        pushes &= pushMask;
+        long captures = state.opp() & captureMask;
+        long leftAttacks = (ownPawns << 7) & ~SquareSet.FILE_H & captures;
+        long rightAttacks = (ownPawns << 9) & ~SquareSet.FILE_A & captures;
+        // every promotion is counted 4 times, once per promotion piece
+        int count = SquareSet.count(pushes) + 3 * SquareSet.count(pushes & SquareSet.RANK_8)
+                + SquareSet.count(doubles)
+                + SquareSet.count(leftAttacks) + 3 * SquareSet.count(leftAttacks & SquareSet.RANK_8)
+                + SquareSet.count(rightAttacks) + 3 * SquareSet.count(rightAttacks & SquareSet.RANK_8);
+        if (state.enPassantSquare != 0) {
+            long pawns = ownPawns & enPassantPawnsMask(state);
+            while (pawns != 0) {
+                long pawn = SquareSet.firstOf(pawns);
+                pawns ^= pawn;
+                if (isLegalEnPassant(state, pawn)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /***
+     * returns whether generateLegalMoves would contain the move, without generating any moves
+     * meant for moves of unknown origin like hash moves, which may come from a different position with the same hash
+     */
+    public boolean isLegal(State state, CheckInfo info, int move) {
+        int type = Move.unpackType(move);
+        int piece = Move.unpackPiece(move);
+        int from = Move.unpackFrom(move);
+        int to = Move.unpackTo(move);
+        long fromSquare = SquareSet.of(from);
+        long toSquare = SquareSet.of(to);
+        if (move == Move.NONE || (state.own() & fromSquare) == 0 || (state.own() & toSquare) != 0 || state.getSquarePiece(from) != piece) {
+            return false;
+        }
+        switch (type) {
+            case Move.CASTLING:
+                return move == LARGE_CASTLING_RAW && isLegalLargeCastling(state, info)
+                        || move == SMALL_CASTLING_RAW && isLegalSmallCastling(state, info);
+            case Move.EN_PASSANT:
+                return piece == Piece.PAWN && to == state.enPassantSquare && to != 0
+                        && (enPassantPawnsMask(state) & fromSquare) != 0 && isLegalEnPassant(state, fromSquare);
+            case Move.DEFAULT:
+                if (piece == Piece.KING) {
+                    return (PieceSquareSet.kingMoves(from) & toSquare & ~info.kingDangerSquares) != 0;
+                }
+                break;
+            case Move.DOUBLE:
+                if (piece != Piece.PAWN || to != from + 16 || (fromSquare & SquareSet.RANK_2) == 0
+                        || ((SquareSet.of(from + 8) | toSquare) & state.occupied()) != 0) {
+                    return false;
+                }
+                break;
+            case Move.PROMOTION_QUEEN:
+            case Move.PROMOTION_ROOK:
+            case Move.PROMOTION_BISHOP:
+            case Move.PROMOTION_KNIGHT:
+                if (piece != Piece.PAWN) {
+                    return false;
+                }
+                break;
+            default:
+                return false;
+        }
+        switch (piece) {
+            case Piece.PAWN:
+                boolean isPromotion = type != Move.DEFAULT && type != Move.DOUBLE;
+                if (isPromotion != ((toSquare & SquareSet.RANK_8) != 0)) {
+                    // promotions must reach the last rank and only promotions may reach it
+                    return false;
+                }
+                if (type != Move.DOUBLE) {
+                    long pushes = (fromSquare << 8) & ~state.occupied();
+                    long attacks = (((fromSquare << 7) & ~SquareSet.FILE_H) | ((fromSquare << 9) & ~SquareSet.FILE_A)) & state.opp();
+                    if (((pushes | attacks) & toSquare) == 0) {
+                        return false;
+                    }
+                }
+                break;
+            case Piece.KNIGHT:
+                if ((PieceSquareSet.knightMoves(from) & toSquare) == 0) {
+                    return false;
+                }
+                break;
+            case Piece.BISHOP:
+                if ((PieceSquareSet.bishopRays(from, state.occupied()) & toSquare) == 0) {
+                    return false;
+                }
+                break;
+            case Piece.ROOK:
+                if ((PieceSquareSet.rookRays(from, state.occupied()) & toSquare) == 0) {
+                    return false;
+                }
+                break;
+            case Piece.QUEEN:
+                if ((PieceSquareSet.queenRays(from, state.occupied()) & toSquare) == 0) {
+                    return false;
+                }
+                break;
+            default:
+                return false;
+        }
+        long targets = (~state.occupied() & info.pushMask) | (state.opp() & info.captureMask);
+        if ((targets & toSquare) == 0) {
+            return false;
+        }
+        if ((info.pinnedMask & fromSquare) != 0) {
+            for (long pinRay : info.pinRays) {
+                if ((pinRay & fromSquare) != 0) {
+                    return (pinRay & toSquare) != 0;
+                }
+            }
+        }
+        return true;
+    }
+
+    public void computeCheckInfo(State state, CheckInfo info) {
+        assert state.assertValid();
+        info.kingDangerSquares = kingDangerSquares(state);
+        info.captureMask = state.opp();
+        info.pushMask = ~0;
+        info.pinnedMask = 0;
         long ownKings = state.kings() & state.own();
-        if ((ownKings & kingDangerSquares) != 0) {
-            long checkers = findOpponentCheckers(state);
-            int checkerCount = SquareSet.count(checkers);
-            if (checkerCount > 1) {
+        int kingSquare = Square.firstOf(ownKings);
+        if ((ownKings & info.kingDangerSquares) != 0) {
+            info.checkers = findOpponentCheckers(state);
+            assert info.checkers != 0;
+            if (SquareSet.count(info.checkers) > 1) {
                 // more than 1 opponent piece is giving check, only king moves can evade it
-                return;
-            }
-            assert checkerCount == 1;
-            captureMask = checkers;
-            int checkerSquare = Square.firstOf(checkers);
-            if ((checkers & (PieceSquareSet.kingMoves(checkerSquare) | PieceSquareSet.knightMoves(checkerSquare))) != 0) {
-                // this if is not required but is cheaper than a full move gen
-                long sourceMask = findOwnAttackers(state, checkerSquare);
-                pushMask = 0;
-                generateDefaultMoves(Piece.QUEEN, sourceMask & state.queens(), checkerSquare, out);
-                generateDefaultMoves(Piece.ROOK, sourceMask & state.rooks(), checkerSquare, out);
-                generateDefaultMoves(Piece.BISHOP, sourceMask & state.bishops(), checkerSquare, out);
-                generateDefaultMoves(Piece.KNIGHT, sourceMask & state.knights(), checkerSquare, out);
-                generateDefaultMoves(Piece.KING, sourceMask & state.kings(), checkerSquare, out);
-                pawnMoves(state, sourceMask & state.pawns(), pushMask, captureMask, out);
-                return;
+                info.captureMask = 0;
+                info.pushMask = 0;
+            } else {
+                info.captureMask = info.checkers;
+                info.pushMask = PieceSquareSet.raySquaresBetween(kingSquare, Square.firstOf(info.checkers));
             }
-            int kingSquare = Square.firstOf(ownKings);
-            pushMask = PieceSquareSet.raySquaresBetween(kingSquare, checkerSquare);
+        } else {
+            info.checkers = 0;
         }
 
-        long pinnedMask = 0;
         long oppRookLikes = (state.rooks() | state.queens()) & state.opp();
-        pinnedMask |= handlePinnedMoves(state, Direction.NORTH, oppRookLikes, pushMask, captureMask, out);
-        pinnedMask |= handlePinnedMoves(state, Direction.EAST, oppRookLikes, pushMask, captureMask, out);
-        pinnedMask |= handlePinnedMoves(state, Direction.SOUTH, oppRookLikes, pushMask, captureMask, out);
-        pinnedMask |= handlePinnedMoves(state, Direction.WEST, oppRookLikes, pushMask, captureMask, out);
-
         long oppBishopLikes = (state.bishops() | state.queens()) & state.opp();
-        pinnedMask |= handlePinnedMoves(state, Direction.NORTH_EAST, oppBishopLikes, pushMask, captureMask, out);
-        pinnedMask |= handlePinnedMoves(state, Direction.SOUTH_EAST, oppBishopLikes, pushMask, captureMask, out);
-        pinnedMask |= handlePinnedMoves(state, Direction.SOUTH_WEST, oppBishopLikes, pushMask, captureMask, out);
-        pinnedMask |= handlePinnedMoves(state, Direction.NORTH_WEST, oppBishopLikes, pushMask, captureMask, out);
+        for (int direction = Direction.NORTH; direction <= Direction.NORTH_WEST; direction++) {
+            long pinRay = findPinRay(state, kingSquare, direction, Direction.isDiagonal(direction) ? oppBishopLikes : oppRookLikes);
+            info.pinRays[direction] = pinRay;
+            info.pinnedMask |= pinRay & state.own();
+        }
+    }
+
+    private int generate(State state, CheckInfo info, boolean captures, boolean quiets, int[] out, int count) {
+        long kingTargets = (captures ? state.opp() : 0) | (quiets ? ~state.occupied() : 0);
+        count = legalKingMoves(state, info, kingTargets, quiets, out, count);
+        if (info.pushMask == 0 && info.captureMask == 0) {
+            return count;
+        }
+        long pushMask = quiets ? info.pushMask : 0;
+        long captureMask = captures ? info.captureMask : 0;
+        long targets = (~state.occupied() & pushMask) | (state.opp() & captureMask);
+        for (int direction = Direction.NORTH; direction <= Direction.NORTH_WEST; direction++) {
+            long pinRay = info.pinRays[direction];
+            if (pinRay != 0) {
+                count = pinnedMoves(state, direction, pinRay, info.pushMask & pinRay, targets & pinRay, captures, quiets, out, count);
+            }
+        }
 
-        long sourceMask = state.own();
-        pawnMoves(state, sourceMask & state.pawns() & ~pinnedMask, pushMask, captureMask, out);
-        knightMoves(state, sourceMask & state.knights() & ~pinnedMask, pushMask, captureMask, out);
-        bishopMoves(state, sourceMask & state.bishops() & ~pinnedMask, pushMask, captureMask, out);
-        rookMoves(state, sourceMask & state.rooks() & ~pinnedMask, pushMask, captureMask, out);
-        queenMoves(state, sourceMask & state.queens() & ~pinnedMask, pushMask, captureMask, out);
+        long sourceMask = state.own() & ~info.pinnedMask;
+        count = pawnMoves(state, sourceMask & state.pawns(), info.pushMask, info.captureMask, captures, quiets, out, count);
+        count = knightMoves(state, sourceMask & state.knights(), targets, out, count);
+        count = bishopMoves(state, sourceMask & state.bishops(), targets, out, count);
+        count = rookMoves(state, sourceMask & state.rooks(), targets, out, count);
+        count = queenMoves(state, sourceMask & state.queens(), targets, out, count);
+        return count;
     }
 
     /***
@@ -146,6 +393,23 @@ public class MoveGenerator {
         return findAttackers(state, target, pawnsMask, state.opp());
     }
 
+    /***
+     * attackers of both sides, sliders are blocked by the given occupancy instead of the board
+     * pieces missing from the occupancy are not removed from the result
+     */
+    public long findAllAttackers(State state, int target, long occupied) {
+        long targetSquares = SquareSet.of(target);
+        long ownPawnsMask = ((targetSquares >>> 7) & ~SquareSet.FILE_A) | ((targetSquares >>> 9) & ~SquareSet.FILE_H);
+        long oppPawnsMask = ((targetSquares << 7) & ~SquareSet.FILE_H) | ((targetSquares << 9) & ~SquareSet.FILE_A);
+        long attackers = 0;
+        attackers |= PieceSquareSet.kingMoves(target) & state.kings();
+        attackers |= PieceSquareSet.knightMoves(target) & state.knights();
+        attackers |= ((ownPawnsMask & state.own()) | (oppPawnsMask & state.opp())) & state.pawns();
+        attackers |= PieceSquareSet.rookRays(target, occupied) & (state.rooks() | state.queens());
+        attackers |= PieceSquareSet.bishopRays(target, occupied) & (state.bishops() | state.queens());
+        return attackers;
+    }
+
     private long findAttackers(State state, int target, long pawnsMask, long attackerMask) {
         long attackers = 0;
         attackers |= PieceSquareSet.kingMoves(target) & attackerMask & state.kings();
@@ -156,189 +420,195 @@ public class MoveGenerator {
         return attackers;
     }
 
-    private long handlePinnedMoves(State state, int direction, long opponentAttackersMask, long pushMask, long captureMask, Consumer<Move> out) {
-        long pinnedSet = 0;
-        long ownKings = state.kings() & state.own();
-        int kingSquare = Square.firstOf(ownKings);
+    /***
+     * returns the ray from the own king to the opponent piece pinning an own piece in the given direction or 0
+     */
+    private long findPinRay(State state, int kingSquare, int direction, long opponentAttackersMask) {
         long ray = SquareSet.simpleDirectionRay(direction, kingSquare);
         if ((state.own() & ray) != 0 && (ray & opponentAttackersMask) != 0) {
             // check above is not required, but it provides a cheap early exit condition
             long pinRay = PieceSquareSet.directionRay(direction, kingSquare, state.opp());
-            long pinned = pinRay & state.own();
-            if (SquareSet.count(pinned) == 1) {
-                int from = Square.firstOf(pinned);
-                if ((pinRay & opponentAttackersMask) != 0) {
-                    if ((pinned & state.rooks()) != 0 && !Direction.isDiagonal(direction)) {
-                        long slides = pinRay ^ pinned;
-                        generateDefaultMoves(Piece.ROOK, from, slides & ~state.own() & (pushMask | captureMask), out);
-                    } else if ((pinned & state.queens()) != 0) {
-                        long slides = pinRay ^ pinned;
-                        generateDefaultMoves(Piece.QUEEN, from, slides & ~state.own() & (pushMask | captureMask), out);
-                    } else if ((pinned & state.bishops()) != 0 && Direction.isDiagonal(direction)) {
-                        long slides = pinRay ^ pinned;
-                        generateDefaultMoves(Piece.BISHOP, from, slides & ~state.own() & (pushMask | captureMask), out);
-                    } else if ((pinned & state.pawns()) != 0) {
-                        pawnMoves(state, pinned, pushMask & pinRay, captureMask & pinRay, out);
-                    } else {
-                        // pinned knights can never move
-                        // kings can not be pinned
-                    }
-
-                    pinnedSet |= pinned;
-                }
+            if (SquareSet.count(pinRay & state.own()) == 1 && (pinRay & opponentAttackersMask) != 0) {
+                return pinRay;
             }
         }
-        return pinnedSet;
+        return 0;
+    }
+
+    private int pinnedMoves(State state, int direction, long pinRay, long pushMask, long targets, boolean captures, boolean quiets, int[] out, int count) {
+        long pinned = pinRay & state.own();
+        int from = Square.firstOf(pinned);
+        if ((pinned & state.rooks()) != 0 && !Direction.isDiagonal(direction)) {
+            count = generateDefaultMoves(Piece.ROOK, from, targets, out, count);
+        } else if ((pinned & state.queens()) != 0) {
+            count = generateDefaultMoves(Piece.QUEEN, from, targets, out, count);
+        } else if ((pinned & state.bishops()) != 0 && Direction.isDiagonal(direction)) {
+            count = generateDefaultMoves(Piece.BISHOP, from, targets, out, count);
+        } else if ((pinned & state.pawns()) != 0) {
+            count = pawnMoves(state, pinned, pushMask, targets & state.opp(), captures, quiets, out, count);
+        } else {
+            // pinned knights can never move
+            // kings can not be pinned
+        }
+        return count;
     }
 
-    private void queenMoves(State state, long ownQueens, long pushMask, long captureMask, Consumer<Move> out) {
+    private int queenMoves(State state, long ownQueens, long targets, int[] out, int count) {
         while (ownQueens != 0) {
             int from = Square.firstOf(ownQueens);
 
-            long occupied = state.own() | state.opp();
-            long queenSlides = PieceSquareSet.queenRays(from, occupied);
-            generateDefaultMoves(Piece.QUEEN, from, queenSlides & ~state.own() & (pushMask | captureMask), out);
+            long queenSlides = PieceSquareSet.queenRays(from, state.occupied());
+            count = generateDefaultMoves(Piece.QUEEN, from, queenSlides & targets, out, count);
 
             ownQueens = SquareSet.clearFirst(ownQueens);
         }
+        return count;
     }
 
-    private void rookMoves(State state, long ownRooks, long pushMask, long captureMask, Consumer<Move> out) {
+    private int rookMoves(State state, long ownRooks, long targets, int[] out, int count) {
         while (ownRooks != 0) {
             int from = Square.firstOf(ownRooks);
 
-            long occupied = state.own() | state.opp();
-            long rookSlides = PieceSquareSet.rookRays(from, occupied);
-            generateDefaultMoves(Piece.ROOK, from, rookSlides & ~state.own() & (pushMask | captureMask), out);
+            long rookSlides = PieceSquareSet.rookRays(from, state.occupied());
+            count = generateDefaultMoves(Piece.ROOK, from, rookSlides & targets, out, count);
 
             ownRooks = SquareSet.clearFirst(ownRooks);
         }
+        return count;
     }
 
-    private void bishopMoves(State state, long ownBishops, long pushMask, long captureMask, Consumer<Move> out) {
+    private int bishopMoves(State state, long ownBishops, long targets, int[] out, int count) {
         while (ownBishops != 0) {
             int from = Square.firstOf(ownBishops);
 
-            long occupied = state.own() | state.opp();
-            long bishopSlides = PieceSquareSet.bishopRays(from, occupied);
-            generateDefaultMoves(Piece.BISHOP, from, bishopSlides & ~state.own() & (pushMask | captureMask), out);
+            long bishopSlides = PieceSquareSet.bishopRays(from, state.occupied());
+            count = generateDefaultMoves(Piece.BISHOP, from, bishopSlides & targets, out, count);
 
             ownBishops = SquareSet.clearFirst(ownBishops);
         }
+        return count;
     }
 
-    private void knightMoves(State state, long ownKnights, long pushMask, long captureMask, Consumer<Move> out) {
+    private int knightMoves(State state, long ownKnights, long targets, int[] out, int count) {
         while (ownKnights != 0) {
             int from = Square.firstOf(ownKnights);
 
-            generateDefaultMoves(Piece.KNIGHT, from, PieceSquareSet.knightMoves(from) & ~state.own() & (pushMask | captureMask), out);
+            count = generateDefaultMoves(Piece.KNIGHT, from, PieceSquareSet.knightMoves(from) & targets, out, count);
 
             ownKnights = SquareSet.clearFirst(ownKnights);
         }
+        return count;
     }
 
-    private void pseudoLegalKingMoves(State state, Consumer<Move> out) {
+    private int pseudoLegalKingMoves(State state, int[] out, int count) {
         long ownKings = state.kings() & state.own();
         int from = Square.firstOf(ownKings);
-        generateDefaultMoves(Piece.KING, from, PieceSquareSet.kingMoves(from) & ~state.own(), out);
+        count = generateDefaultMoves(Piece.KING, from, PieceSquareSet.kingMoves(from) & ~state.own(), out, count);
         if ((state.availableCastlings & Castling.A1) != 0) {
             if (((SquareSet.B1 | SquareSet.C1 | SquareSet.D1) & state.occupied()) == 0) {
                 if (((SquareSet.C1 | SquareSet.D1 | SquareSet.E1) & kingDangerSquares(state)) == 0) {
-                    out.accept(LARGE_CASTLING);
+                    out[count++] = LARGE_CASTLING_RAW;
                 }
             }
         }
         if ((state.availableCastlings & Castling.H1) != 0) {
             if (((SquareSet.F1 | SquareSet.G1) & state.occupied()) == 0) {
                 if (((SquareSet.E1 | SquareSet.F1 | SquareSet.G1) & kingDangerSquares(state)) == 0) {
-                    out.accept(SMALL_CASTLING);
+                    out[count++] = SMALL_CASTLING_RAW;
                 }
             }
         }
+        return count;
     }
 
-    private void legalKingMoves(State state, long kingDangerSquares, Consumer<Move> out) {
+    private int legalKingMoves(State state, CheckInfo info, long targets, boolean castlings, int[] out, int count) {
         long ownKings = state.kings() & state.own();
         int from = Square.firstOf(ownKings);
-        generateDefaultMoves(Piece.KING, from, PieceSquareSet.kingMoves(from) & ~(state.own() | kingDangerSquares), out);
-        if ((ownKings & kingDangerSquares) == 0) {
-            if ((state.availableCastlings & Castling.A1) != 0) {
-                if (((SquareSet.B1 | SquareSet.C1 | SquareSet.D1) & state.occupied()) == 0) {
-                    if (((SquareSet.C1 | SquareSet.D1 | SquareSet.E1) & kingDangerSquares) == 0) {
-                        out.accept(LARGE_CASTLING);
-                    }
-                }
+        count = generateDefaultMoves(Piece.KING, from, PieceSquareSet.kingMoves(from) & targets & ~info.kingDangerSquares, out, count);
+        if (castlings) {
+            if (isLegalLargeCastling(state, info)) {
+                out[count++] = LARGE_CASTLING_RAW;
             }
-            if ((state.availableCastlings & Castling.H1) != 0) {
-                if (((SquareSet.F1 | SquareSet.G1) & state.occupied()) == 0) {
-                    if (((SquareSet.E1 | SquareSet.F1 | SquareSet.G1) & kingDangerSquares) == 0) {
-                        out.accept(SMALL_CASTLING);
-                    }
-                }
+            if (isLegalSmallCastling(state, info)) {
+                out[count++] = SMALL_CASTLING_RAW;
             }
         }
+        return count;
+    }
+
+    private static boolean isLegalLargeCastling(State state, CheckInfo info) {
+        return (state.availableCastlings & Castling.A1) != 0
+                && ((SquareSet.B1 | SquareSet.C1 | SquareSet.D1) & state.occupied()) == 0
+                && ((SquareSet.C1 | SquareSet.D1 | SquareSet.E1) & info.kingDangerSquares) == 0;
     }
 
-    private void generateDefaultMoves(int piece, int from, long toSquareSet, Consumer<Move> out) {
+    private static boolean isLegalSmallCastling(State state, CheckInfo info) {
+        return (state.availableCastlings & Castling.H1) != 0
+                && ((SquareSet.F1 | SquareSet.G1) & state.occupied()) == 0
+                && ((SquareSet.E1 | SquareSet.F1 | SquareSet.G1) & info.kingDangerSquares) == 0;
+    }
+
+    private int generateDefaultMoves(int piece, int from, long toSquareSet, int[] out, int count) {
         while (toSquareSet != 0) {
             int to = Square.firstOf(toSquareSet);
-            out.accept(Move.defaultMove(piece, from, to));
+            out[count++] = Move.pack32(Move.DEFAULT, piece, from, to);
 
             toSquareSet = SquareSet.clearFirst(toSquareSet);
         }
+        return count;
     }
 
-    private void generateDefaultMoves(int piece, long fromSquareSet, int to, Consumer<Move> out) {
-        while (fromSquareSet != 0) {
-            int from = Square.firstOf(fromSquareSet);
-            out.accept(Move.defaultMove(piece, from, to));
+    private int generatePromotions(int from, int to, int[] out, int count) {
+        out[count++] = Move.pack32(Move.PROMOTION_QUEEN, Piece.PAWN, from, to);
+        out[count++] = Move.pack32(Move.PROMOTION_KNIGHT, Piece.PAWN, from, to);
+        out[count++] = Move.pack32(Move.PROMOTION_ROOK, Piece.PAWN, from, to);
+        out[count++] = Move.pack32(Move.PROMOTION_BISHOP, Piece.PAWN, from, to);
+        return count;
+    }
 
-            fromSquareSet = SquareSet.clearFirst(fromSquareSet);
+    private int pawnMoves(State state, long ownPawns, long pushMask, long captureMask, boolean captures, boolean quiets, int[] out, int count) {
+        if (quiets) {
+            count = pawnQuiets(state, ownPawns, pushMask, out, count);
         }
+        if (captures) {
+            count = pawnCaptures(state, ownPawns, pushMask, captureMask, out, count);
+        }
+        return count;
     }
 
-    private void pawnMoves(State state, long ownPawns, long pushMask, long captureMask, Consumer<Move> out) {
+    private int pawnQuiets(State state, long ownPawns, long pushMask, int[] out, int count) {
         long moves = (ownPawns << 8) & ~state.occupied();
-        long doubles = (moves << 8) & ~state.occupied() & SquareSet.RANK_4;
-        moves &= pushMask;
+        long doubles = (moves << 8) & ~state.occupied() & SquareSet.RANK_4 & pushMask;
+        moves &= pushMask & ~SquareSet.RANK_8;
         while (moves != 0) {
             int to = Square.firstOf(moves);
-            int from = to - 8;
-            if (to >= Square.A8) {
-                out.accept(Move.promotion(Move.PROMOTION_QUEEN, from, to));
-                out.accept(Move.promotion(Move.PROMOTION_KNIGHT, from, to));
-                out.accept(Move.promotion(Move.PROMOTION_ROOK, from, to));
-                out.accept(Move.promotion(Move.PROMOTION_BISHOP, from, to));
-            } else {
-                out.accept(Move.pawnMove(from, to));
-            }
+            out[count++] = Move.pack32(Move.DEFAULT, Piece.PAWN, to - 8, to);
 
             moves = SquareSet.clearFirst(moves);
         }
-        doubles &= pushMask;
         while (doubles != 0) {
             int to = Square.firstOf(doubles);
-            int from = to - 16;
-            out.accept(Move.pawnDouble(from, to));
+            out[count++] = Move.pack32(Move.DOUBLE, Piece.PAWN, to - 16, to);
 
             doubles = SquareSet.clearFirst(doubles);
         }
+        return count;
+    }
+
+    /***
+     * quiet promotions count as captures, en passant is only restricted by the legality check below
+     */
+    private int pawnCaptures(State state, long ownPawns, long pushMask, long captureMask, int[] out, int count) {
+        long promotions = (ownPawns << 8) & ~state.occupied() & pushMask & SquareSet.RANK_8;
+        while (promotions != 0) {
+            int to = Square.firstOf(promotions);
+            count = generatePromotions(to - 8, to, out, count);
+
+            promotions = SquareSet.clearFirst(promotions);
+        }
 
         if (state.enPassantSquare != 0) {
-            long pawnMask = (SquareSet.of(state.enPassantSquare - 9) | SquareSet.of(state.enPassantSquare - 7)) & SquareSet.RANK_5;
-            long pawns = ownPawns & pawnMask;
-            int kingSquare = Square.firstOf(state.kings() & state.own());
-            while (pawns != 0) {
-                long pawn = SquareSet.firstOf(pawns);
-                pawns ^= pawn;
-                long occ = state.occupied() ^ (pawn | SquareSet.of(state.enPassantSquare) | SquareSet.of(state.enPassantSquare - 8));
-                if ((PieceSquareSet.rookRays(kingSquare, occ) & (state.rooks() | state.queens()) & state.opp()) != 0
-                        || (PieceSquareSet.bishopRays(kingSquare, occ) & (state.bishops() | state.queens()) & state.opp()) != 0) {
-                    // en passant is pinned and can't be used
-                    continue;
-                }
-                out.accept(Move.enPassant(Square.firstOf(pawn), state.enPassantSquare));
-            }
+            count = enPassantMoves(state, ownPawns, out, count);
         }
 
         long leftAttacks = (ownPawns << 7) & ~SquareSet.FILE_H & state.opp() & captureMask;
@@ -346,12 +616,9 @@ public class MoveGenerator {
             int to = Square.firstOf(leftAttacks);
             int from = to - 7;
             if (to >= Square.A8) {
-                out.accept(Move.promotion(Move.PROMOTION_QUEEN, from, to));
-                out.accept(Move.promotion(Move.PROMOTION_KNIGHT, from, to));
-                out.accept(Move.promotion(Move.PROMOTION_ROOK, from, to));
-                out.accept(Move.promotion(Move.PROMOTION_BISHOP, from, to));
+                count = generatePromotions(from, to, out, count);
             } else {
-                out.accept(Move.pawnMove(from, to));
+                out[count++] = Move.pack32(Move.DEFAULT, Piece.PAWN, from, to);
             }
 
             leftAttacks = SquareSet.clearFirst(leftAttacks);
@@ -361,15 +628,37 @@ public class MoveGenerator {
             int to = Square.firstOf(rightAttacks);
             int from = to - 9;
             if (to >= Square.A8) {
-                out.accept(Move.promotion(Move.PROMOTION_QUEEN, from, to));
-                out.accept(Move.promotion(Move.PROMOTION_KNIGHT, from, to));
-                out.accept(Move.promotion(Move.PROMOTION_ROOK, from, to));
-                out.accept(Move.promotion(Move.PROMOTION_BISHOP, from, to));
+                count = generatePromotions(from, to, out, count);
             } else {
-                out.accept(Move.pawnMove(from, to));
+                out[count++] = Move.pack32(Move.DEFAULT, Piece.PAWN, from, to);
             }
 
             rightAttacks = SquareSet.clearFirst(rightAttacks);
         }
+        return count;
+    }
+
+    private int enPassantMoves(State state, long ownPawns, int[] out, int count) {
+        long pawns = ownPawns & enPassantPawnsMask(state);
+        while (pawns != 0) {
+            long pawn = SquareSet.firstOf(pawns);
+            pawns ^= pawn;
+            if (isLegalEnPassant(state, pawn)) {
+                out[count++] = Move.pack32(Move.EN_PASSANT, Piece.PAWN, Square.firstOf(pawn), state.enPassantSquare);
+            }
+        }
+        return count;
+    }
+
+    private static long enPassantPawnsMask(State state) {
+        return (SquareSet.of(state.enPassantSquare - 9) | SquareSet.of(state.enPassantSquare - 7)) & SquareSet.RANK_5;
+    }
+
+    private static boolean isLegalEnPassant(State state, long pawn) {
+        int kingSquare = Square.firstOf(state.kings() & state.own());
+        long occ = state.occupied() ^ (pawn | SquareSet.of(state.enPassantSquare) | SquareSet.of(state.enPassantSquare - 8));
+        // en passant is pinned and can't be used if it exposes the king
+        return (PieceSquareSet.rookRays(kingSquare, occ) & (state.rooks() | state.queens()) & state.opp()) == 0
+                && (PieceSquareSet.bishopRays(kingSquare, occ) & (state.bishops() | state.queens()) & state.opp()) == 0;
     }
 }
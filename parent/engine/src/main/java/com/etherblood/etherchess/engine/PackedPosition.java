@@ -0,0 +1,98 @@
+package com.etherblood.etherchess.engine;
+
+import com.etherblood.etherchess.engine.util.Castling;
+import com.etherblood.etherchess.engine.util.Piece;
+import com.etherblood.etherchess.engine.util.Square;
+import com.etherblood.etherchess.engine.util.SquareSet;
+import java.nio.ByteBuffer;
+
+/***
+ * fixed size binary position, always stored from whites perspective:
+ * 8 bytes occupancy, 16 bytes with a 4 bit piece code per occupied square in ascending square order,
+ * 1 byte castling (bits 0-3) and side to move (bit 4), 1 byte en passant square, 1 byte fifty moves counter, 5 bytes reserved
+ */
+public class PackedPosition {
+
+    public static final int BYTES = 32;
+
+    private static final int BLACK_PIECE = 8;
+    private static final int BLACK_TO_MOVE = 16;
+
+    private static final int OCCUPANCY_OFFSET = 0;
+    private static final int PIECES_OFFSET = 8;
+    private static final int FLAGS_OFFSET = 24;
+    private static final int EN_PASSANT_OFFSET = 25;
+    private static final int FIFTY_MOVES_OFFSET = 26;
+
+    public static void write(State state, ByteBuffer buffer, int offset) {
+        long occupied = state.occupied();
+        long black = state.opp();
+        int castling = state.availableCastlings;
+        int enPassant = state.enPassantSquare;
+        if (!state.isWhite) {
+            occupied = SquareSet.mirrorY(occupied);
+            black = SquareSet.mirrorY(state.own());
+            castling = Castling.mirrorY(castling);
+            if (enPassant != State.NO_EN_PASSANT) {
+                enPassant = Square.mirrorY(enPassant);
+            }
+        }
+
+        long lowNibbles = 0;
+        long highNibbles = 0;
+        int index = 0;
+        for (long remaining = occupied; remaining != 0; remaining = SquareSet.clearFirst(remaining)) {
+            int square = Square.firstOf(remaining);
+            int relativeSquare = state.isWhite ? square : Square.mirrorY(square);
+            long code = state.getSquarePiece(relativeSquare);
+            if ((SquareSet.of(square) & black) != 0) {
+                code |= BLACK_PIECE;
+            }
+            if (index < 16) {
+                lowNibbles |= code << (4 * index);
+            } else {
+                highNibbles |= code << (4 * (index - 16));
+            }
+            index++;
+        }
+        assert index <= 32;
+
+        buffer.putLong(offset + OCCUPANCY_OFFSET, occupied);
+        buffer.putLong(offset + PIECES_OFFSET, lowNibbles);
+        buffer.putLong(offset + PIECES_OFFSET + 8, highNibbles);
+        buffer.put(offset + FLAGS_OFFSET, (byte) (castling | (state.isWhite ? 0 : BLACK_TO_MOVE)));
+        buffer.put(offset + EN_PASSANT_OFFSET, (byte) enPassant);
+        buffer.put(offset + FIFTY_MOVES_OFFSET, (byte) state.fiftyMovesCounter);
+        for (int i = FIFTY_MOVES_OFFSET + 1; i < BYTES; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+    }
+
+    public static void read(ByteBuffer buffer, int offset, State state) {
+        state.clear();
+        long occupied = buffer.getLong(offset + OCCUPANCY_OFFSET);
+        long nibbles = buffer.getLong(offset + PIECES_OFFSET);
+        int index = 0;
+        for (long remaining = occupied; remaining != 0; remaining = SquareSet.clearFirst(remaining)) {
+            if (index == 16) {
+                nibbles = buffer.getLong(offset + PIECES_OFFSET + 8);
+            }
+            int code = (int) (nibbles >>> (4 * (index & 15))) & 0xf;
+            int piece = code & ~BLACK_PIECE;
+            if (!Piece.isValid(piece) || piece == Piece.EMPTY) {
+                throw new IllegalArgumentException("Invalid piece code " + code + " at offset " + offset);
+            }
+            // pieces are toggled before the side to move is applied, so 'white' and 'own' are the same here
+            state.togglePiece((code & BLACK_PIECE) == 0, piece, Square.firstOf(remaining));
+            index++;
+        }
+        int flags = buffer.get(offset + FLAGS_OFFSET);
+        state.availableCastlings = flags & 0xf;
+        state.enPassantSquare = buffer.get(offset + EN_PASSANT_OFFSET);
+        state.fiftyMovesCounter = buffer.get(offset + FIFTY_MOVES_OFFSET) & 0xff;
+        if ((flags & BLACK_TO_MOVE) != 0) {
+            state.mirrorSides();
+        }
+        assert state.assertValid();
+    }
+}
@@ -0,0 +1,68 @@
+package com.etherblood.etherchess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/***
+ * memory mapped file of PackedPosition records, see PositionFileWriter for the layout
+ * records have a fixed size, so the index of a record directly determines its offset
+ */
+public class PositionFile {
+
+    public static final int MAGIC = 0x45435046;// "ECPF"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 32;
+
+    // files are mapped in windows of 1 GiB, a single mapping is limited to 2 GiB
+    private static final int RECORDS_PER_WINDOW = (1 << 30) / PackedPosition.BYTES;
+
+    private final MappedByteBuffer[] windows;
+    private final long size;
+
+    private PositionFile(MappedByteBuffer[] windows, long size) {
+        this.windows = windows;
+        this.size = size;
+    }
+
+    public static PositionFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a position file");
+            }
+            if (header.getInt(4) != VERSION || header.getInt(8) != PackedPosition.BYTES) {
+                throw new IOException("Unsupported position file version " + header.getInt(4) + " with record size " + header.getInt(8));
+            }
+            long size = header.getLong(16);
+            if (HEADER_BYTES + size * PackedPosition.BYTES > channel.size()) {
+                throw new IOException(path + " is truncated");
+            }
+            MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((size + RECORDS_PER_WINDOW - 1) / RECORDS_PER_WINDOW)];
+            for (int i = 0; i < windows.length; i++) {
+                long firstRecord = (long) i * RECORDS_PER_WINDOW;
+                long records = Math.min(RECORDS_PER_WINDOW, size - firstRecord);
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + firstRecord * PackedPosition.BYTES, records * PackedPosition.BYTES);
+                windows[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new PositionFile(windows, size);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void read(long index, State state) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        MappedByteBuffer window = windows[(int) (index / RECORDS_PER_WINDOW)];
+        PackedPosition.read(window, (int) (index % RECORDS_PER_WINDOW) * PackedPosition.BYTES, state);
+    }
+}
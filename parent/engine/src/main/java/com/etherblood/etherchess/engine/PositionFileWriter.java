@@ -0,0 +1,58 @@
+package com.etherblood.etherchess.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/***
+ * writes PackedPosition records behind a header, all values are little endian:
+ * int magic, int version, int record size, int reserved, long record count, 8 bytes reserved
+ * the record count is written on close
+ */
+public class PositionFileWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(2048 * PackedPosition.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private long size;
+
+    public PositionFileWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        channel.position(PositionFile.HEADER_BYTES);
+    }
+
+    public void add(State state) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        PackedPosition.write(state, buffer, buffer.position());
+        buffer.position(buffer.position() + PackedPosition.BYTES);
+        size++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(PositionFile.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, PositionFile.MAGIC);
+            header.putInt(4, PositionFile.VERSION);
+            header.putInt(8, PackedPosition.BYTES);
+            header.putLong(16, size);
+            channel.write(header, 0);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
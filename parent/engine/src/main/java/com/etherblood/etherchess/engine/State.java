@@ -1,9 +1,11 @@
 package com.etherblood.etherchess.engine;
 
 import com.etherblood.etherchess.engine.util.Castling;
+import com.etherblood.etherchess.engine.util.MaterialSignature;
 import com.etherblood.etherchess.engine.util.Piece;
 import com.etherblood.etherchess.engine.util.Square;
 import com.etherblood.etherchess.engine.util.SquareSet;
+import java.util.Arrays;
 
 public class State {
 
@@ -20,15 +22,22 @@ public class State {
     private long rooks;
     private long queens;
 
+    // square -> piece, indexed by square ^ mailboxFlip so mirrorSides does not need to touch it
+    private final byte[] mailbox = new byte[64];
+    private int mailboxFlip;
+
     public int availableCastlings;
     public int enPassantSquare;
     public int fiftyMovesCounter;
     public boolean isWhite;
 
     private long piecesHash;
+    private long pawnHash;
+    private long materialSignature;
 
     public State(MirrorZobrist zobrist) {
         this.zobrist = zobrist;
+        Arrays.fill(mailbox, (byte) Piece.EMPTY);
     }
 
     public void clear() {
@@ -40,7 +49,11 @@ public class State {
         bishops = 0;
         rooks = 0;
         queens = 0;
+        Arrays.fill(mailbox, (byte) Piece.EMPTY);
+        mailboxFlip = 0;
         piecesHash = 0;
+        pawnHash = 0;
+        materialSignature = 0;
         availableCastlings = Castling.OWN | Castling.OPP;
         enPassantSquare = NO_EN_PASSANT;
         fiftyMovesCounter = 0;
@@ -55,7 +68,18 @@ public class State {
             opp ^= squareSet;
         }
         togglePieceSquareSet(piece, squareSet);
-        piecesHash ^= zobrist.pieceHash(isOwn, piece, square);
+        long pieceHash = zobrist.pieceHash(isOwn, piece, square);
+        piecesHash ^= pieceHash;
+        if (piece == Piece.PAWN || piece == Piece.KING) {
+            pawnHash ^= pieceHash;
+        }
+        if ((getPieceSquareSet(piece) & squareSet) != 0) {
+            mailbox[square ^ mailboxFlip] = (byte) piece;
+            materialSignature += MaterialSignature.unit(isOwn, piece, square);
+        } else {
+            mailbox[square ^ mailboxFlip] = Piece.EMPTY;
+            materialSignature -= MaterialSignature.unit(isOwn, piece, square);
+        }
     }
 
     public void togglePiece(boolean isOwn, int piece, int from, int to) {
@@ -67,10 +91,59 @@ public class State {
             opp ^= squareSet;
         }
         togglePieceSquareSet(piece, squareSet);
-        piecesHash ^= zobrist.pieceHash(isOwn, piece, from) ^ zobrist.pieceHash(isOwn, piece, to);
+        updateMailbox(piece, squareSet);
+        long pieceHash = zobrist.pieceHash(isOwn, piece, from) ^ zobrist.pieceHash(isOwn, piece, to);
+        piecesHash ^= pieceHash;
+        if (piece == Piece.PAWN || piece == Piece.KING) {
+            pawnHash ^= pieceHash;
+        }
+        // material is unchanged, bishops never change their square color
+    }
+
+    /***
+     * moves pieces like togglePiece, but leaves the hashes and material untouched, they must be restored separately
+     */
+    void togglePieceUnhashed(boolean isOwn, int piece, long squareSet) {
+        if (isOwn) {
+            own ^= squareSet;
+        } else {
+            opp ^= squareSet;
+        }
+        togglePieceSquareSet(piece, squareSet);
+        updateMailbox(piece, squareSet);
+    }
+
+    private void updateMailbox(int piece, long squareSet) {
+        long pieceSquareSet = getPieceSquareSet(piece);
+        for (long remaining = squareSet; remaining != 0; remaining = SquareSet.clearFirst(remaining)) {
+            int square = Square.firstOf(remaining);
+            mailbox[square ^ mailboxFlip] = (pieceSquareSet & SquareSet.of(square)) != 0 ? (byte) piece : Piece.EMPTY;
+        }
+    }
+
+    void save(UndoInfo undo) {
+        undo.availableCastlings = availableCastlings;
+        undo.enPassantSquare = enPassantSquare;
+        undo.fiftyMovesCounter = fiftyMovesCounter;
+        undo.piecesHash = piecesHash;
+        undo.pawnHash = pawnHash;
+        undo.materialSignature = materialSignature;
+    }
+
+    void restore(UndoInfo undo) {
+        availableCastlings = undo.availableCastlings;
+        enPassantSquare = undo.enPassantSquare;
+        fiftyMovesCounter = undo.fiftyMovesCounter;
+        piecesHash = undo.piecesHash;
+        pawnHash = undo.pawnHash;
+        materialSignature = undo.materialSignature;
     }
 
     public int getSquarePiece(int square) {
+        return mailbox[square ^ mailboxFlip];
+    }
+
+    private int getSquarePieceFromSquareSets(int square) {
         long squares = SquareSet.of(square);
         for (int piece = Piece.PAWN; piece <= Piece.QUEEN; piece++) {
             if ((getPieceSquareSet(piece) & squares) != 0) {
@@ -90,6 +163,8 @@ public class State {
         bishops = other.bishops;
         rooks = other.rooks;
         queens = other.queens;
+        System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+        mailboxFlip = other.mailboxFlip;
 
         availableCastlings = other.availableCastlings;
         enPassantSquare = other.enPassantSquare;
@@ -97,6 +172,8 @@ public class State {
         isWhite = other.isWhite;
 
         piecesHash = other.piecesHash;
+        pawnHash = other.pawnHash;
+        materialSignature = other.materialSignature;
         assert assertValid();
     }
 
@@ -111,6 +188,7 @@ public class State {
         bishops = SquareSet.mirrorY(bishops);
         rooks = SquareSet.mirrorY(rooks);
         queens = SquareSet.mirrorY(queens);
+        mailboxFlip ^= 0b111000;
 
         availableCastlings = Castling.mirrorY(availableCastlings);
         if (enPassantSquare != NO_EN_PASSANT) {
@@ -118,6 +196,8 @@ public class State {
         }
         isWhite = !isWhite;
         piecesHash = MirrorZobrist.mirror(piecesHash);
+        pawnHash = MirrorZobrist.mirror(pawnHash);
+        materialSignature = MaterialSignature.mirror(materialSignature);
         assert assertValid();
     }
 
@@ -129,6 +209,20 @@ public class State {
         return piecesHash ^ zobrist.metaHash(enPassantSquare, availableCastlings);
     }
 
+    /***
+     * hash of the pawns and kings only, key for pawn structure caches
+     */
+    public long pawnHash() {
+        return pawnHash;
+    }
+
+    /***
+     * piece counts, see MaterialSignature
+     */
+    public long materialSignature() {
+        return materialSignature;
+    }
+
     private long getPieceSquareSet(int piece) {
         return switch (piece) {
             case Piece.PAWN -> pawns;
@@ -161,13 +255,24 @@ public class State {
         assert (own ^ opp) == (pawns ^ kings ^ knights ^ bishops ^ rooks ^ queens);
         assert enPassantSquare == NO_EN_PASSANT || Square.isValid(enPassantSquare);
         long expectedPiecesHash = 0;
+        long expectedPawnHash = 0;
+        long expectedMaterialSignature = 0;
         for (int square = 0; square < 64; square++) {
-            int piece = getSquarePiece(square);
+            int piece = getSquarePieceFromSquareSets(square);
+            assert piece == getSquarePiece(square);
             if (piece != Piece.EMPTY) {
-                expectedPiecesHash ^= zobrist.pieceHash((SquareSet.of(square) & own) != 0, piece, square);
+                boolean isOwn = (SquareSet.of(square) & own) != 0;
+                long pieceHash = zobrist.pieceHash(isOwn, piece, square);
+                expectedPiecesHash ^= pieceHash;
+                if (piece == Piece.PAWN || piece == Piece.KING) {
+                    expectedPawnHash ^= pieceHash;
+                }
+                expectedMaterialSignature += MaterialSignature.unit(isOwn, piece, square);
             }
         }
         assert expectedPiecesHash == piecesHash;
+        assert expectedPawnHash == pawnHash;
+        assert expectedMaterialSignature == materialSignature;
         return true;
     }
 
@@ -0,0 +1,15 @@
+package com.etherblood.etherchess.engine;
+
+/***
+ * everything required to revert a move which can not be derived from the move itself
+ */
+public class UndoInfo {
+
+    public int capture;
+    public int availableCastlings;
+    public int enPassantSquare;
+    public int fiftyMovesCounter;
+    public long piecesHash;
+    public long pawnHash;
+    public long materialSignature;
+}
@@ -0,0 +1,239 @@
+package com.etherblood.etherchess.engine.table;
+
+import com.etherblood.etherchess.engine.stats.StatUtil;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * buckets of 4 (key, raw) entries, 64 bytes each and aligned so a bucket is exactly one cache line
+ * the first 3 entries of a bucket keep the most valuable entries (deep, exact and from the current search),
+ * the last entry always takes whatever did not make it into the others
+ * raw values must follow the layout of TableEntry
+ * <p>
+ * the table may be shared between threads without locking:
+ * keys are stored xor-ed with their raw value, so an entry torn by concurrent writers fails the key check on load and reads as a miss
+ * (Hyatt's lockless hashing), slots are accessed through a VarHandle so each long itself is always read and written atomically
+ * lost updates between racing writers are accepted, they only cost a table entry
+ * <p>
+ * entries live off heap in direct buffers of up to 1 GiB each, so sizes are not limited by the maximum array length
+ * large tables need a matching -XX:MaxDirectMemorySize, transparent huge pages can only back them if the OS has them enabled for all memory
+ */
+public class BucketTable implements Table {
+
+    public static final int ENTRY_BYTES = 2 * Long.BYTES;
+    public static final long EMPTY_RAW = 0;
+    public static final int MAX_LOG_SIZE = 40;
+
+    private static final int BUCKET_BYTES = 64;
+    private static final int ALWAYS_REPLACE_OFFSET = BUCKET_BYTES - ENTRY_BYTES;
+    private static final int CHUNK_BYTES = 1 << 30;
+    private static final int HUGE_PAGE_BYTES = 2 << 20;
+    private static final VarHandle SLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer[] chunks;
+    private final long size;
+    private final long bucketMask;
+    private final int chunkShift;
+    private final int chunkBucketMask;
+    private volatile int generation;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder overwrites = new LongAdder();
+
+    public BucketTable(int logSize) {
+        this(logSize, false);
+    }
+
+    /***
+     * @param logSize the table holds 2^logSize entries
+     * @param hugePageAligned align chunks to 2 MiB pages instead of cache lines
+     */
+    public BucketTable(int logSize, boolean hugePageAligned) {
+        this(logSize, hugePageAligned ? HUGE_PAGE_BYTES : BUCKET_BYTES, CHUNK_BYTES);
+    }
+
+    BucketTable(int logSize, int alignment, int maxChunkBytes) {
+        assert Integer.bitCount(maxChunkBytes) == 1 && maxChunkBytes >= BUCKET_BYTES;
+        if (logSize < 2 || logSize > MAX_LOG_SIZE) {
+            throw new IllegalArgumentException("logSize must be between 2 and " + MAX_LOG_SIZE + ", was " + logSize + ".");
+        }
+        size = 1L << logSize;
+        long bytes = size * ENTRY_BYTES;
+        int chunkBytes = (int) Math.min(bytes, maxChunkBytes);
+        chunks = new ByteBuffer[(int) (bytes / chunkBytes)];
+        for (int i = 0; i < chunks.length; i++) {
+            // direct buffers are zeroed on allocation, no need to clear them
+            chunks[i] = ByteBuffer.allocateDirect(chunkBytes + alignment)
+                    .alignedSlice(alignment)
+                    .limit(chunkBytes)
+                    .slice()
+                    .order(ByteOrder.nativeOrder());
+        }
+        bucketMask = size / 4 - 1;
+        chunkShift = Integer.numberOfTrailingZeros(chunkBytes / BUCKET_BYTES);
+        chunkBucketMask = chunkBytes / BUCKET_BYTES - 1;
+    }
+
+    @Override
+    public boolean load(long hash, TableEntry entry) {
+        ByteBuffer chunk = chunk(hash);
+        int bucket = bucketOffset(hash);
+        for (int i = bucket; i < bucket + BUCKET_BYTES; i += ENTRY_BYTES) {
+            long raw = slot(chunk, i + Long.BYTES);
+            if ((slot(chunk, i) ^ raw) == hash && raw != EMPTY_RAW) {
+                hits.increment();
+                entry.raw = raw;
+                return true;
+            }
+        }
+        misses.increment();
+        return false;
+    }
+
+    @Override
+    public void store(long hash, TableEntry entry) {
+        assert entry.raw != EMPTY_RAW;
+        int generation = this.generation;
+        long raw = TableEntry.withGeneration(entry.raw, generation);
+        ByteBuffer chunk = chunk(hash);
+        int bucket = bucketOffset(hash);
+        int target = -1;
+        for (int i = bucket; i < bucket + BUCKET_BYTES; i += ENTRY_BYTES) {
+            if ((slot(chunk, i) ^ slot(chunk, i + Long.BYTES)) == hash) {
+                target = i;
+                break;
+            }
+        }
+        if (target == -1) {
+            int victim = bucket;
+            int victimPriority = priority(slot(chunk, bucket + Long.BYTES), generation);
+            for (int i = bucket + ENTRY_BYTES; i < bucket + ALWAYS_REPLACE_OFFSET; i += ENTRY_BYTES) {
+                int priority = priority(slot(chunk, i + Long.BYTES), generation);
+                if (priority < victimPriority) {
+                    victim = i;
+                    victimPriority = priority;
+                }
+            }
+            target = priority(raw, generation) >= victimPriority ? victim : bucket + ALWAYS_REPLACE_OFFSET;
+        }
+        if (slot(chunk, target + Long.BYTES) != EMPTY_RAW) {
+            overwrites.increment();
+        }
+        SLOTS.setOpaque(chunk, target, hash ^ raw);
+        SLOTS.setOpaque(chunk, target + Long.BYTES, raw);
+        stores.increment();
+    }
+
+    @Override
+    public void remove(long hash) {
+        ByteBuffer chunk = chunk(hash);
+        int bucket = bucketOffset(hash);
+        for (int i = bucket; i < bucket + BUCKET_BYTES; i += ENTRY_BYTES) {
+            if ((slot(chunk, i) ^ slot(chunk, i + Long.BYTES)) == hash) {
+                SLOTS.setOpaque(chunk, i, ~hash);
+                SLOTS.setOpaque(chunk, i + Long.BYTES, EMPTY_RAW);
+            }
+        }
+    }
+
+    @Override
+    public void newSearch() {
+        generation = (generation + 1) % TableEntry.GENERATIONS;
+    }
+
+    /***
+     * ages all entries in constant time instead of clearing the table
+     */
+    @Override
+    public void newGame() {
+        newSearch();
+    }
+
+    /***
+     * entries with lower priority are replaced first, each search of age costs as much as 8 plies of depth,
+     * the age wraps around after TableEntry.GENERATIONS searches
+     */
+    private static int priority(long raw, int generation) {
+        if (raw == EMPTY_RAW) {
+            return Integer.MIN_VALUE;
+        }
+        int age = (generation - TableEntry.generation(raw) + TableEntry.GENERATIONS) % TableEntry.GENERATIONS;
+        int bounds = TableEntry.bounds(raw);
+        int boundsBonus = bounds == TableEntry.EXACT_BOUND ? 2 : bounds == TableEntry.LOWER_BOUND ? 1 : 0;
+        return 4 * TableEntry.depth(raw) + boundsBonus - 32 * age;
+    }
+
+    private static long slot(ByteBuffer chunk, int offset) {
+        return (long) SLOTS.getOpaque(chunk, offset);
+    }
+
+    private ByteBuffer chunk(long hash) {
+        return chunks[(int) ((hash & bucketMask) >>> chunkShift)];
+    }
+
+    private int bucketOffset(long hash) {
+        return ((int) hash & chunkBucketMask) * BUCKET_BYTES;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void printStats(PrintStream out) {
+        out.println("Table stats");
+        out.println(" size: " + size + " (" + StatUtil.humanReadableByteCountBin(size * ENTRY_BYTES) + ")");
+        long hits = this.hits.sum();
+        long misses = this.misses.sum();
+        long stores = this.stores.sum();
+        long overwrites = this.overwrites.sum();
+        long full = stores - overwrites;
+        long empty = size - full;
+        out.println("  empty: " + empty + " (" + StatUtil.toPercentage(empty, size, 1) + ")");
+        out.println("  full: " + full + " (" + StatUtil.toPercentage(full, size, 1) + ")");
+        out.println(" hits: " + hits + " (" + StatUtil.toPercentage(hits, hits + misses, 1) + ")");
+        out.println(" misses: " + misses + " (" + StatUtil.toPercentage(misses, hits + misses, 1) + ")");
+        out.println(" loads: " + (hits + misses));
+        out.println(" stores: " + stores);
+        out.println(" overwrites: " + overwrites);
+        out.println(" stores/size: " + StatUtil.toPercentage(stores, size, 1));
+    }
+
+    /***
+     * must not run concurrently with other operations on this table
+     */
+    @Override
+    public void clear() {
+        for (ByteBuffer chunk : chunks) {
+            for (int i = 0; i < chunk.capacity(); i += Long.BYTES) {
+                chunk.putLong(i, EMPTY_RAW);
+            }
+        }
+        generation = 0;
+        hits.reset();
+        misses.reset();
+        stores.reset();
+        overwrites.reset();
+    }
+
+    /***
+     * share of the first 1000 entries written by the current search
+     */
+    @Override
+    public int fillPermill() {
+        int sampleSize = (int) Math.min(1000, size);
+        int full = 0;
+        int entriesPerChunk = chunks[0].capacity() / ENTRY_BYTES;
+        for (int i = 0; i < sampleSize; i++) {
+            long raw = slot(chunks[i / entriesPerChunk], (i % entriesPerChunk) * ENTRY_BYTES + Long.BYTES);
+            if (raw != EMPTY_RAW && TableEntry.generation(raw) == generation) {
+                full++;
+            }
+        }
+        return 1000 * full / sampleSize;
+    }
+}
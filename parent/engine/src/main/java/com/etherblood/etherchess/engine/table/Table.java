@@ -11,4 +11,18 @@ public interface Table {
     void clear();
 
     int fillPermill();
+
+    /***
+     * called once per search, entries of earlier searches are preferred for replacement
+     */
+    default void newSearch() {
+        // do nothing
+    }
+
+    /***
+     * entries of earlier games stay valid but should no longer be kept over new ones
+     */
+    default void newGame() {
+        clear();
+    }
 }
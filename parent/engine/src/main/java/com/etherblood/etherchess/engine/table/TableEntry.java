@@ -1,6 +1,43 @@
 package com.etherblood.etherchess.engine.table;
 
+/***
+ * raw layout used by the search (tables only look at depth, generation and bounds):
+ * bits 0-7 depth, bits 8-13 generation (set by the table), bits 14-15 bounds, bits 16-31 score, bits 32-63 move
+ */
 public class TableEntry {
 
+    public static final int UNKNOWN_BOUND = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+    public static final int EXACT_BOUND = 3;
+
+    public static final int MAX_DEPTH = 0xff;
+    public static final int GENERATIONS = 64;
+    public static final int BOUNDS_SHIFT = 14;
+
+    private static final int GENERATION_SHIFT = 8;
+    private static final long GENERATION_MASK = (long) (GENERATIONS - 1) << GENERATION_SHIFT;
+
     public long raw;
+
+    public static int depth(long raw) {
+        return (int) raw & MAX_DEPTH;
+    }
+
+    public static int generation(long raw) {
+        return (int) ((raw & GENERATION_MASK) >>> GENERATION_SHIFT);
+    }
+
+    public static long withGeneration(long raw, int generation) {
+        assert 0 <= generation && generation < GENERATIONS;
+        return (raw & ~GENERATION_MASK) | ((long) generation << GENERATION_SHIFT);
+    }
+
+    public static int bounds(long raw) {
+        return (int) (raw >>> BOUNDS_SHIFT) & EXACT_BOUND;
+    }
+
+    public static int move(long raw) {
+        return (int) (raw >>> 32);
+    }
 }
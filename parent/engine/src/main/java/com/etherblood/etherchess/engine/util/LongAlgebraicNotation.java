@@ -1,15 +1,19 @@
 package com.etherblood.etherchess.engine.util;
 
+import com.etherblood.etherchess.engine.AbsoluteState;
 import com.etherblood.etherchess.engine.Move;
 import com.etherblood.etherchess.engine.State;
 
 public class LongAlgebraicNotation {
 
+    public static final String NULL_MOVE = "0000";
 
+    /***
+     * returns null for the null move "0000", see Move.applyNullTo
+     */
     public static Move parseLanString(State state, String lan) {
-        if ("0000".equals(lan)) {
-            // TODO: implement nullmove
-            throw new UnsupportedOperationException();
+        if (NULL_MOVE.equals(lan)) {
+            return null;
         }
         int from = Square.parse(lan.substring(0, 2));
         int to = Square.parse(lan.substring(2, 4));
@@ -18,25 +22,7 @@ public class LongAlgebraicNotation {
             to = Square.mirrorY(to);
         }
         if (lan.length() == 5) {
-            int promotion = Piece.fromCharacter(lan.charAt(4));
-            int promotionType;
-            switch (promotion) {
-                case Piece.QUEEN:
-                    promotionType = Move.PROMOTION_QUEEN;
-                    break;
-                case Piece.KNIGHT:
-                    promotionType = Move.PROMOTION_KNIGHT;
-                    break;
-                case Piece.ROOK:
-                    promotionType = Move.PROMOTION_ROOK;
-                    break;
-                case Piece.BISHOP:
-                    promotionType = Move.PROMOTION_BISHOP;
-                    break;
-                default:
-                    throw new AssertionError(promotion);
-            }
-            return Move.promotion(promotionType, from, to);
+            return Move.promotion(promotionType(lan.charAt(4)), from, to);
         }
         int piece = state.getSquarePiece(from);
         switch (piece) {
@@ -58,7 +44,59 @@ public class LongAlgebraicNotation {
         }
     }
 
+    /***
+     * parses into a packed move with absolute squares (see AbsoluteState), returns Move.NONE for the null move "0000"
+     */
+    public static int parseLanString(AbsoluteState state, String lan) {
+        if (NULL_MOVE.equals(lan)) {
+            return Move.NONE;
+        }
+        int from = Square.parse(lan.substring(0, 2));
+        int to = Square.parse(lan.substring(2, 4));
+        if (lan.length() == 5) {
+            return Move.pack32(promotionType(lan.charAt(4)), Piece.PAWN, from, to);
+        }
+        int piece = state.getSquarePiece(from);
+        int type = Move.DEFAULT;
+        if (piece == Piece.PAWN) {
+            if (to == state.enPassantSquare) {
+                type = Move.EN_PASSANT;
+            } else if (Math.abs(to - from) == 16) {
+                type = Move.DOUBLE;
+            }
+        } else if (piece == Piece.KING && Math.abs(to - from) == 2) {
+            type = Move.CASTLING;
+        }
+        return Move.pack32(type, piece, from, to);
+    }
+
+    private static int promotionType(char character) {
+        int promotion = Piece.fromCharacter(character);
+        switch (promotion) {
+            case Piece.QUEEN:
+                return Move.PROMOTION_QUEEN;
+            case Piece.KNIGHT:
+                return Move.PROMOTION_KNIGHT;
+            case Piece.ROOK:
+                return Move.PROMOTION_ROOK;
+            case Piece.BISHOP:
+                return Move.PROMOTION_BISHOP;
+            default:
+                throw new AssertionError(promotion);
+        }
+    }
+
+    /***
+     * formats a packed move with absolute squares, see AbsoluteState
+     */
+    public static String toLanString(int absoluteMove) {
+        return toLanString(true, Move.unpack32(absoluteMove));
+    }
+
     public static String toLanString(boolean isWhite, Move move) {
+        if (move == null) {
+            return NULL_MOVE;
+        }
         int from = move.from();
         int to = move.to();
         if (!isWhite) {
@@ -0,0 +1,157 @@
+package com.etherblood.etherchess.engine.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class MagicAttacks implements SlidingAttacks {
+    // https://www.chessprogramming.org/Magic_Bitboards#Fancy
+
+    private static final long[] ROOK_MAGICS = {
+            0x80136080004000L, 0xc0100040002000L, 0x300104088a00300L, 0x880080004801000L,
+            0x1200100804200200L, 0x2200080102001004L, 0x2080308002004100L, 0x200051484002042L,
+            0x4808800887604000L, 0x10014000e01000c4L, 0x53001300200140L, 0x1001808018001000L,
+            0x22001006000820L, 0x22000200108804L, 0x1000100040200L, 0x2000041008204L,
+            0x100c208000401080L, 0x4010004040002010L, 0x5030018020008011L, 0x80090010002100L,
+            0x8010050008010090L, 0x202010100080400L, 0x10124000f029018L, 0x20000841061L,
+            0x80228002c002L, 0x180400080200080L, 0xe04401100200101L, 0xa0080480100080L,
+            0x28008280040008L, 0x200020080040080L, 0x1101000100020004L, 0x2003004200040081L,
+            0x8040004028800087L, 0x508401004402000L, 0x410001880802000L, 0x110004400400800L,
+            0x8014000800808004L, 0x5020080800400L, 0xc20900204000188L, 0x401204402000881L,
+            0xc80004100810022L, 0x1900402010004001L, 0xc10080024002000L, 0x201001030009L,
+            0xa20040008008080L, 0x442000810020004L, 0x83d2100881040042L, 0xc10158069020004L,
+            0x100800100204100L, 0x282200040100640L, 0x90422001001900L, 0x8010002100091500L,
+            0x4040040008008280L, 0x4001001400080300L, 0x3040020128108400L, 0x2008040c80510200L,
+            0x820902e0d4800041L, 0x9420190040008021L, 0x10413082000c101L, 0x4100005002109L,
+            0x1112000820100402L, 0x441000208040001L, 0x482009002410804L, 0x2041240248102L
+    };
+    private static final long[] BISHOP_MAGICS = {
+            0x20e0040d22043200L, 0x404100a08430000L, 0x21020082012010L, 0x102408100000800L,
+            0x8042121040008000L, 0x60821040400d0aL, 0x4006580808188001L, 0x8a0d20610024815L,
+            0x424400501022200L, 0x88411002a8010022L, 0xa100100102102420L, 0x9000292042000228L,
+            0x8021420210204205L, 0x11002104040L, 0x8804422200L, 0x288200a6211000L,
+            0x20a11020020090L, 0x210a12004008080L, 0x11001000520142L, 0x800c40c10b022L,
+            0x8200240121000cL, 0x400804808240200L, 0x1048842908d01002L, 0x9001100021081210L,
+            0xc119000c8200100L, 0x8100800120a9c00L, 0x4010010010020L, 0x4040040410200L,
+            0x20840280802000L, 0x500820000221000L, 0x402120400481a24L, 0x20a02000820800L,
+            0x21080814612040L, 0x14c044300200200L, 0x8200108800100050L, 0x20a0420280480080L,
+            0x140840101c0100L, 0x620042100002080L, 0x1020200400c0410L, 0x88004043010108L,
+            0x2048013012000812L, 0x1000520220015020L, 0x1002218020801000L, 0x4002120202030423L,
+            0x200002020a012400L, 0x184010130240020aL, 0x4010802040112L, 0xc10040048801040L,
+            0x540220910081L, 0xc82004218840000L, 0xc4200908000L, 0x2000020042020000L,
+            0x1001010460820000L, 0x4040400801810016L, 0xc008020808012200L, 0x2a42104200850200L,
+            0x208210110012001L, 0xc000002101101080L, 0x2028202016402L, 0x200200231040900L,
+            0x80000310020210L, 0x4704044184040c22L, 0x2020420408008100L, 0x208812800850203L
+    };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] ROOK_ATTACKS;
+    private static final long[] BISHOP_ATTACKS;
+
+    static {
+        SlidingAttacks reference = new ObstructionDifferenceAttacks();
+        for (int square = 0; square < 64; square++) {
+            ROOK_MASKS[square] = rookMask(square);
+            BISHOP_MASKS[square] = bishopMask(square);
+        }
+        ROOK_ATTACKS = precomputeAttacks(ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, reference::rookRays);
+        BISHOP_ATTACKS = precomputeAttacks(BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, reference::bishopRays);
+    }
+
+    private static long rookMask(int square) {
+        long file = SquareSet.fileOf(square) & ~(SquareSet.RANK_1 | SquareSet.RANK_8);
+        long rank = SquareSet.rankOf(square) & ~(SquareSet.FILE_A | SquareSet.FILE_H);
+        return (file | rank) & ~SquareSet.of(square);
+    }
+
+    private static long bishopMask(int square) {
+        return (SquareSet.diagonalOf(square) | SquareSet.antiDiagonalOf(square)) & SquareSet.INNER & ~SquareSet.of(square);
+    }
+
+    private static long[] precomputeAttacks(long[] masks, long[] magics, int[] shifts, int[] offsets, RayFunction reference) {
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            int bits = SquareSet.count(masks[square]);
+            shifts[square] = 64 - bits;
+            offsets[square] = size;
+            size += 1 << bits;
+        }
+        long[] attacks = new long[size];
+        for (int square = 0; square < 64; square++) {
+            long mask = masks[square];
+            long occupied = 0;
+            do {
+                long expected = reference.rays(square, occupied);
+                int index = offsets[square] + (int) ((occupied * magics[square]) >>> shifts[square]);
+                if (attacks[index] != 0 && attacks[index] != expected) {
+                    // the attack sets of a square are never empty, so 0 marks an unused slot
+                    throw new IllegalStateException("Magic " + Long.toHexString(magics[square]) + " of square " + Square.toString(square) + " has a destructive collision.");
+                }
+                attacks[index] = expected;
+                occupied = (occupied - mask) & mask;
+            } while (occupied != 0);
+        }
+        return attacks;
+    }
+
+    @Override
+    public long rookRays(int square, long occupied) {
+        return ROOK_ATTACKS[ROOK_OFFSETS[square] + (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    @Override
+    public long bishopRays(int square, long occupied) {
+        return BISHOP_ATTACKS[BISHOP_OFFSETS[square] + (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static void main(String[] args) {
+        // generate code for the magic constants above
+        Random random = new Random(42);
+        SlidingAttacks reference = new ObstructionDifferenceAttacks();
+        System.out.println("ROOK_MAGICS");
+        for (int square = 0; square < 64; square++) {
+            System.out.println("0x" + Long.toHexString(findMagic(random, square, rookMask(square), reference::rookRays)) + "L,");
+        }
+        System.out.println();
+        System.out.println("BISHOP_MAGICS");
+        for (int square = 0; square < 64; square++) {
+            System.out.println("0x" + Long.toHexString(findMagic(random, square, bishopMask(square), reference::bishopRays)) + "L,");
+        }
+        System.out.println();
+    }
+
+    private static long findMagic(Random random, int square, long mask, RayFunction reference) {
+        int bits = SquareSet.count(mask);
+        long[] attacks = new long[1 << bits];
+        while (true) {
+            long magic = random.nextLong() & random.nextLong() & random.nextLong();
+            if (SquareSet.count((mask * magic) & SquareSet.RANK_8) < 6) {
+                continue;
+            }
+            Arrays.fill(attacks, 0);
+            boolean valid = true;
+            long occupied = 0;
+            do {
+                long expected = reference.rays(square, occupied);
+                int index = (int) ((occupied * magic) >>> (64 - bits));
+                if (attacks[index] != 0 && attacks[index] != expected) {
+                    valid = false;
+                    break;
+                }
+                attacks[index] = expected;
+                occupied = (occupied - mask) & mask;
+            } while (occupied != 0);
+            if (valid) {
+                return magic;
+            }
+        }
+    }
+
+    private interface RayFunction {
+        long rays(int square, long occupied);
+    }
+}
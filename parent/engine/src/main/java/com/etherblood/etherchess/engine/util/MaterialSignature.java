@@ -0,0 +1,51 @@
+package com.etherblood.etherchess.engine.util;
+
+/***
+ * piece counts packed into 4 bit fields, own pieces in the lower 24 bits, opponent pieces in the next 24 bits
+ * bishops are counted per square color, kings are not counted
+ */
+public class MaterialSignature {
+
+    public static final int PAWNS = 0;
+    public static final int KNIGHTS = 4;
+    public static final int WHITE_SQUARE_BISHOPS = 8;
+    public static final int BLACK_SQUARE_BISHOPS = 12;
+    public static final int ROOKS = 16;
+    public static final int QUEENS = 20;
+
+    public static final int OPP_SHIFT = 24;
+
+    private static final long SIDE_MASK = (1L << OPP_SHIFT) - 1;
+    private static final long WHITE_SQUARE_BISHOPS_MASK = (0xfL << WHITE_SQUARE_BISHOPS) | (0xfL << (WHITE_SQUARE_BISHOPS + OPP_SHIFT));
+    private static final long BLACK_SQUARE_BISHOPS_MASK = (0xfL << BLACK_SQUARE_BISHOPS) | (0xfL << (BLACK_SQUARE_BISHOPS + OPP_SHIFT));
+
+    /***
+     * the value added to the signature when the piece is put on the square
+     */
+    public static long unit(boolean isOwn, int piece, int square) {
+        int shift = isOwn ? 0 : OPP_SHIFT;
+        return switch (piece) {
+            case Piece.PAWN -> 1L << (shift + PAWNS);
+            case Piece.KING -> 0;
+            case Piece.KNIGHT -> 1L << (shift + KNIGHTS);
+            case Piece.BISHOP -> 1L << (shift + ((SquareSet.of(square) & SquareSet.WHITE_SQUARES) != 0 ? WHITE_SQUARE_BISHOPS : BLACK_SQUARE_BISHOPS));
+            case Piece.ROOK -> 1L << (shift + ROOKS);
+            case Piece.QUEEN -> 1L << (shift + QUEENS);
+            default -> throw new AssertionError(piece);
+        };
+    }
+
+    public static int count(long signature, boolean isOwn, int field) {
+        return (int) (signature >>> ((isOwn ? 0 : OPP_SHIFT) + field)) & 0xf;
+    }
+
+    /***
+     * swaps the sides, mirroring the board also swaps the square colors
+     */
+    public static long mirror(long signature) {
+        long bishopsSwapped = (signature & ~(WHITE_SQUARE_BISHOPS_MASK | BLACK_SQUARE_BISHOPS_MASK))
+                | ((signature & WHITE_SQUARE_BISHOPS_MASK) << 4)
+                | ((signature & BLACK_SQUARE_BISHOPS_MASK) >>> 4);
+        return ((bishopsSwapped & SIDE_MASK) << OPP_SHIFT) | (bishopsSwapped >>> OPP_SHIFT);
+    }
+}
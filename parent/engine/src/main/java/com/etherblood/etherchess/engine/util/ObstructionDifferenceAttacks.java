@@ -0,0 +1,32 @@
+package com.etherblood.etherchess.engine.util;
+
+public class ObstructionDifferenceAttacks implements SlidingAttacks {
+
+    @Override
+    public long rookRays(int square, long occupied) {
+        long file = SquareSet.fileOf(square);
+        long rank = SquareSet.rankOf(square);
+        long lower = SquareSet.lower(square);
+        long upper = SquareSet.upper(square);
+        return lineAttack(lower, upper, file, occupied)
+                ^ lineAttack(lower, upper, rank, occupied);
+    }
+
+    @Override
+    public long bishopRays(int square, long occupied) {
+        long diagonal = SquareSet.diagonalOf(square);
+        long antiDiagonal = SquareSet.antiDiagonalOf(square);
+        long lower = SquareSet.lower(square);
+        long upper = SquareSet.upper(square);
+        return lineAttack(lower, upper, diagonal, occupied)
+                ^ lineAttack(lower, upper, antiDiagonal, occupied);
+    }
+
+    // https://github.com/Gigantua/Chess_Movegen/blob/c52ea218e057ab44440c423f891789abf62396b0/GeneticObstructionDiffV2.hpp#L77
+    private static long lineAttack(long lower, long upper, long line, long occupied) {
+        long lowerOccupiedLine = lower & line & occupied;
+        long upperOccupiedLine = upper & line & occupied;
+        long lowerObstacle = Long.MIN_VALUE >>> Long.numberOfLeadingZeros(lowerOccupiedLine | 1);
+        return line & (upperOccupiedLine ^ (upperOccupiedLine - lowerObstacle));
+    }
+}
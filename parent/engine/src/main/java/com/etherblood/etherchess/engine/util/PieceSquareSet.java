@@ -10,6 +10,8 @@ public class PieceSquareSet {
     private static final long[] KING_DANGER_BISHOPS_MASK = new long[64];
     private static final long[] KING_DANGER_KNIGHTS_MASK = new long[64];
 
+    private static final SlidingAttacks SLIDING_ATTACKS = SlidingAttacks.fromSystemProperty();
+
     static {
         precomputeKingAttacks();
         precomputeKnightAttacks();
@@ -78,6 +80,10 @@ public class PieceSquareSet {
             if (kingSquare == Square.E1) {
                 kingZone |= SquareSet.C1 | SquareSet.G1;
             }
+            if (kingSquare == Square.E8) {
+                // castling squares of black, required by the absolute move generator
+                kingZone |= SquareSet.C8 | SquareSet.G8;
+            }
 
             while (kingZone != 0) {
                 int dangerSquare = Square.firstOf(kingZone);
@@ -115,29 +121,15 @@ public class PieceSquareSet {
     }
 
     public static long rookRays(int square, long occupied) {
-        long file = SquareSet.fileOf(square);
-        long rank = SquareSet.rankOf(square);
-        long lower = SquareSet.lower(square);
-        long upper = SquareSet.upper(square);
-        return lineAttack(lower, upper, file, occupied)
-                ^ lineAttack(lower, upper, rank, occupied);
+        return SLIDING_ATTACKS.rookRays(square, occupied);
     }
 
     public static long bishopRays(int square, long occupied) {
-        long diagonal = SquareSet.diagonalOf(square);
-        long antiDiagonal = SquareSet.antiDiagonalOf(square);
-        long lower = SquareSet.lower(square);
-        long upper = SquareSet.upper(square);
-        return lineAttack(lower, upper, diagonal, occupied)
-                ^ lineAttack(lower, upper, antiDiagonal, occupied);
-    }
-
-    // https://github.com/Gigantua/Chess_Movegen/blob/c52ea218e057ab44440c423f891789abf62396b0/GeneticObstructionDiffV2.hpp#L77
-    private static long lineAttack(long lower, long upper, long line, long occupied) {
-        long lowerOccupiedLine = lower & line & occupied;
-        long upperOccupiedLine = upper & line & occupied;
-        long lowerObstacle = Long.MIN_VALUE >>> Long.numberOfLeadingZeros(lowerOccupiedLine | 1);
-        return line & (upperOccupiedLine ^ (upperOccupiedLine - lowerObstacle));
+        return SLIDING_ATTACKS.bishopRays(square, occupied);
+    }
+
+    public static SlidingAttacks slidingAttacks() {
+        return SLIDING_ATTACKS;
     }
 
     public static long northRay(int square, long occupied) {
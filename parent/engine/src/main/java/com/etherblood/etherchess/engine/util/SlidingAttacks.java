@@ -0,0 +1,22 @@
+package com.etherblood.etherchess.engine.util;
+
+public interface SlidingAttacks {
+
+    String PROPERTY = "etherchess.sliders";
+
+    long rookRays(int square, long occupied);
+
+    long bishopRays(int square, long occupied);
+
+    /***
+     * picks the backend from the system property 'etherchess.sliders' ("obstruction" or "magic"), obstruction is the default
+     */
+    static SlidingAttacks fromSystemProperty() {
+        String name = System.getProperty(PROPERTY, "obstruction");
+        return switch (name) {
+            case "magic" -> new MagicAttacks();
+            case "obstruction" -> new ObstructionDifferenceAttacks();
+            default -> throw new IllegalArgumentException("Unknown " + PROPERTY + ": " + name);
+        };
+    }
+}
@@ -96,7 +96,7 @@ public class SquareSet {
     public static final long INNER = ~OUTER;
     public static final long MAIN_DIAGONAL = 0x8040201008040201L;
     public static final long MAIN_ANTIDIAGONAL = 0x102040810204080L;
-    public static final long BLACK_SQUARES = 0x5555555555555555L;
+    public static final long BLACK_SQUARES = 0xaa55aa55aa55aa55L;
     public static final long WHITE_SQUARES = ~BLACK_SQUARES;
 
     private static final long[] DIAGONAL = new long[64];
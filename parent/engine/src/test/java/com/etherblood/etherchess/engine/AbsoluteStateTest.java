@@ -0,0 +1,161 @@
+package com.etherblood.etherchess.engine;
+
+import com.etherblood.etherchess.engine.table.AlwaysReplaceTable;
+import com.etherblood.etherchess.engine.util.LongAlgebraicNotation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Scanner;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AbsoluteStateTest {
+
+    private final AbsoluteMoveGenerator absoluteMoveGen = new AbsoluteMoveGenerator();
+    private final MoveGenerator moveGen = new MoveGenerator();
+    private final FenConverter converter = new FenConverter();
+    private MirrorZobrist zobrist;
+
+    @BeforeEach
+    public void resetRandom() {
+        zobrist = new MirrorZobrist(new Random(7)::nextLong);
+    }
+
+    @Test
+    public void perftFile() throws IOException {
+        long maxCount = 10_000L;// limit count so tests finish reasonably fast
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("perft.txt")) {
+            Scanner scanner = new Scanner(is);
+            while (scanner.hasNext()) {
+                String[] parts = scanner.nextLine().split(",");
+                for (int depth = 1; depth < parts.length; depth++) {
+                    long count = Long.parseLong(parts[depth]);
+                    if (count > maxCount) {
+                        break;
+                    }
+                    assertPerft(parts[0], depth, count);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void specialPositions() {
+        // https://www.madchess.net/wp-content/uploads/tests/TestPositions.txt
+        // expected counts are taken from the verified relative implementation
+        Perft relative = new Perft(new AlwaysReplaceTable(16), false);
+        String[] fens = {
+                "3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1",
+                "8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1",
+                "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1",
+                "5k2/8/8/8/8/8/8/4K2R w K - 0 1",
+                "3k4/8/8/8/8/8/8/R3K3 w Q - 0 1",
+                "r3k2r/1b4bq/8/8/8/8/7B/R3K2R w KQkq - 0 1",
+                "r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq - 0 1",
+                "2K2r2/4P3/8/8/8/8/8/3k4 w - - 0 1",
+                "8/8/1P2K3/8/2n5/1q6/8/5k2 b - - 0 1",
+                "8/P1k5/K7/8/8/8/8/8 w - - 0 1",
+                "8/k1P5/8/1K6/8/8/8/8 w - - 0 1"
+        };
+        for (String fen : fens) {
+            assertPerft(fen, 4, relative.perft(fen, 4));
+        }
+        assertPerft("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -", 3, 97862);
+    }
+
+    @Test
+    public void sameAsRelative() {
+        // legal moves, hash and fen must agree with State for every visited position
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1"
+        };
+        for (String fen : fens) {
+            State state = new State(zobrist);
+            converter.fromFen(state, fen);
+            AbsoluteState absolute = new AbsoluteState(zobrist);
+            converter.fromFen(absolute, fen);
+            assertSame(state, absolute, 3);
+        }
+    }
+
+    private void assertSame(State state, AbsoluteState absolute, int depth) {
+        if (depth == 0) {
+            return;
+        }
+        String fen = converter.toFen(state);
+        Assertions.assertEquals(fen, converter.toFen(absolute));
+        Assertions.assertEquals(state.hash(), absolute.hash(), fen);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int moveCount = moveGen.generateLegalMoves(state, moves);
+        int[] absoluteMoves = new int[MoveGenerator.MAX_MOVES];
+        int absoluteMoveCount = absoluteMoveGen.generateLegalMoves(absolute, absoluteMoves);
+        String[] expected = new String[moveCount];
+        for (int i = 0; i < moveCount; i++) {
+            expected[i] = LongAlgebraicNotation.toLanString(state.isWhite, Move.unpack32(moves[i]));
+        }
+        String[] actual = new String[absoluteMoveCount];
+        for (int i = 0; i < absoluteMoveCount; i++) {
+            actual[i] = LongAlgebraicNotation.toLanString(absoluteMoves[i]);
+        }
+        Assertions.assertArrayEquals(sorted(expected), sorted(actual), fen);
+
+        UndoInfo undo = new UndoInfo();
+        UndoInfo absoluteUndo = new UndoInfo();
+        for (int i = 0; i < moveCount; i++) {
+            int absoluteMove = LongAlgebraicNotation.parseLanString(absolute, expected[i]);
+            Assertions.assertEquals(absoluteMoves[Arrays.asList(actual).indexOf(expected[i])], absoluteMove, expected[i]);
+            Move.applyTo(moves[i], state, undo);
+            absolute.applyTo(absoluteMove, absoluteUndo);
+            assertSame(state, absolute, depth - 1);
+            Move.undo(moves[i], state, undo);
+            absolute.undo(absoluteMove, absoluteUndo);
+        }
+        Assertions.assertEquals(fen, converter.toFen(state));
+    }
+
+    @Test
+    public void nullMove() {
+        AbsoluteState state = new AbsoluteState(zobrist);
+        converter.fromFen(state, FenConverter.DEFAULT_STARTPOSITION);
+        Assertions.assertEquals(Move.NONE, LongAlgebraicNotation.parseLanString(state, LongAlgebraicNotation.NULL_MOVE));
+    }
+
+    private static String[] sorted(String[] lans) {
+        String[] result = lans.clone();
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void assertPerft(String fen, int depth, long count) {
+        AbsoluteState state = new AbsoluteState(zobrist);
+        converter.fromFen(state, fen);
+        int[][] moveBuffers = new int[depth + 1][MoveGenerator.MAX_MOVES];
+        UndoInfo[] undoBuffers = new UndoInfo[depth + 1];
+        for (int i = 0; i < undoBuffers.length; i++) {
+            undoBuffers[i] = new UndoInfo();
+        }
+        Assertions.assertEquals(count, perft(state, depth, moveBuffers, undoBuffers), "perft" + depth + "(\"" + fen + "\")");
+    }
+
+    private long perft(AbsoluteState state, int depth, int[][] moveBuffers, UndoInfo[] undoBuffers) {
+        int[] moves = moveBuffers[depth];
+        int moveCount = absoluteMoveGen.generateLegalMoves(state, moves);
+        if (depth == 1) {
+            return moveCount;
+        }
+        UndoInfo undo = undoBuffers[depth];
+        long sum = 0;
+        for (int i = 0; i < moveCount; i++) {
+            state.applyTo(moves[i], undo);
+            assert absoluteMoveGen.findOwnCheckers(state) == 0;
+            sum += perft(state, depth - 1, moveBuffers, undoBuffers);
+            state.undo(moves[i], undo);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,154 @@
+package com.etherblood.etherchess.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class EpdReaderTest {
+
+    private final MirrorZobrist zobrist = new MirrorZobrist(new Random(7)::nextLong);
+
+    @Test
+    public void perftFileAsEpd() throws IOException {
+        List<String> fens = new ArrayList<>();
+        List<long[]> counts = new ArrayList<>();
+        StringBuilder epd = new StringBuilder();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("perft.txt")) {
+            Scanner scanner = new Scanner(is);
+            while (scanner.hasNext()) {
+                String[] parts = scanner.nextLine().split(",");
+                fens.add(parts[0]);
+                long[] lineCounts = new long[parts.length - 1];
+                epd.append(parts[0]);
+                for (int depth = 1; depth < parts.length; depth++) {
+                    lineCounts[depth - 1] = Long.parseLong(parts[depth]);
+                    epd.append(" D").append(depth).append(' ').append(parts[depth]).append(';');
+                }
+                epd.append('\n');
+                counts.add(lineCounts);
+            }
+        }
+
+        EpdReader reader = new EpdReader(bytes(epd.toString()));
+        State state = new State(zobrist);
+        State expected = new State(zobrist);
+        EpdEntry entry = new EpdEntry();
+        for (int i = 0; i < fens.size(); i++) {
+            Assertions.assertTrue(reader.next(state, entry));
+            new FenConverter().fromFen(expected, fens.get(i));
+            Assertions.assertEquals(expected.hash(), state.hash(), fens.get(i));
+            Assertions.assertEquals(new FenConverter().toFen(expected), new FenConverter().toFen(state));
+            long[] lineCounts = counts.get(i);
+            for (int depth = 1; depth <= lineCounts.length; depth++) {
+                Assertions.assertEquals(lineCounts[depth - 1], entry.perft[depth], fens.get(i));
+            }
+            Assertions.assertEquals(EpdEntry.NO_PERFT, entry.perft[lineCounts.length + 1]);
+        }
+        Assertions.assertFalse(reader.next(state, entry));
+    }
+
+    @Test
+    public void operations() {
+        String epd = "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - bm Bb5 Bc4; am Nxe5; id \"test; 1\"; c0 \"quoted comment\"; hmvc 2; fmvn 3; foo bar;\r\n";
+        EpdReader reader = new EpdReader(bytes(epd));
+        State state = new State(zobrist);
+        EpdEntry entry = new EpdEntry();
+        Assertions.assertTrue(reader.next(state, entry));
+        Assertions.assertEquals(List.of("Bb5", "Bc4"), entry.bestMoves);
+        Assertions.assertEquals(List.of("Nxe5"), entry.avoidMoves);
+        Assertions.assertEquals("test; 1", entry.id);
+        Assertions.assertEquals("quoted comment", entry.comment);
+        Assertions.assertEquals(2, state.fiftyMovesCounter);
+        Assertions.assertEquals(3, entry.fullMoveNumber);
+        Assertions.assertFalse(reader.next(state, entry));
+    }
+
+    @Test
+    public void fenMoveCounters() {
+        EpdReader reader = new EpdReader(bytes("\n8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 5 17\n\n4k3/8/8/8/8/8/8/4K3 w - -"));
+        State state = new State(zobrist);
+        State expected = new State(zobrist);
+        EpdEntry entry = new EpdEntry();
+        Assertions.assertTrue(reader.next(state, entry));
+        new FenConverter().fromFen(expected, "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 5 17");
+        Assertions.assertEquals(expected.hash(), state.hash());
+        Assertions.assertEquals(5, state.fiftyMovesCounter);
+        Assertions.assertEquals(17, entry.fullMoveNumber);
+
+        Assertions.assertTrue(reader.next(state, entry));
+        Assertions.assertEquals(0, state.fiftyMovesCounter);
+        Assertions.assertEquals(1, entry.fullMoveNumber);
+        Assertions.assertFalse(reader.next(state, entry));
+    }
+
+    @Test
+    public void parallelReadsEveryLineOnce() throws IOException {
+        StringBuilder epd = new StringBuilder();
+        long expectedHashSum = 0;
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("perft.txt")) {
+            Scanner scanner = new Scanner(is);
+            State state = new State(zobrist);
+            while (scanner.hasNext()) {
+                String fen = scanner.nextLine().split(",")[0];
+                new FenConverter().fromFen(state, fen);
+                expectedHashSum += state.hash();
+                epd.append(fen).append('\n');
+            }
+        }
+        AtomicLong hashSum = new AtomicLong();
+        EpdReader.parallelForEach(bytes(epd.toString()), zobrist, (state, entry) -> hashSum.addAndGet(state.hash()));
+        Assertions.assertEquals(expectedHashSum, hashSum.get());
+
+        Assertions.assertEquals(3, EpdReader.slices(bytes("a\nb\nc\n"), 100).size());
+    }
+
+    @Test
+    public void mapEndsChunksAtLineBreaks(@TempDir Path directory) throws IOException {
+        String epd = """
+                8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 5 17
+                4k3/8/8/8/8/8/8/4K3 w - - id "short";
+                r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - D1 48; D2 2039; id "kiwipete";
+                rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1""";
+        Path path = directory.resolve("positions.epd");
+        Files.writeString(path, epd, StandardCharsets.US_ASCII);
+
+        List<ByteBuffer> chunks = EpdReader.map(path, 100);
+        Assertions.assertEquals(3, chunks.size());
+        State state = new State(zobrist);
+        EpdEntry entry = new EpdEntry();
+        List<String> ids = new ArrayList<>();
+        int count = 0;
+        for (ByteBuffer chunk : chunks) {
+            Assertions.assertTrue(chunk.limit() <= 100);
+            EpdReader reader = new EpdReader(chunk);
+            while (reader.next(state, entry)) {
+                count++;
+                ids.add(entry.id);
+            }
+        }
+        Assertions.assertEquals(4, count);
+        Assertions.assertEquals(Arrays.asList(null, "short", "kiwipete", null), ids);
+
+        AtomicLong parallelCount = new AtomicLong();
+        EpdReader.parallelForEach(chunks, zobrist, (parallelState, parallelEntry) -> parallelCount.incrementAndGet());
+        Assertions.assertEquals(4, parallelCount.get());
+
+        Assertions.assertThrows(IOException.class, () -> EpdReader.map(path, 50), "a line does not fit into a chunk");
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
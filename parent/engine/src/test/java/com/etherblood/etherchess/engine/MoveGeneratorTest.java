@@ -2,9 +2,15 @@ package com.etherblood.etherchess.engine;
 
 import com.etherblood.etherchess.engine.util.Piece;
 import com.etherblood.etherchess.engine.util.Square;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Scanner;
+import java.util.Set;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -191,4 +197,108 @@ public class MoveGeneratorTest {
         Assertions.assertEquals(8, moves.size());
     }
 
+
+    @Test
+    public void stagedMovesPartitionLegalMoves() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1",
+                "4K3/8/6N1/4r3/8/5k2/8/8 w - - 0 1",
+                "2K2r2/4P3/8/8/8/8/8/3k4 w - - 0 1"
+        };
+        MoveGenerator instance = new MoveGenerator();
+        CheckInfo info = new CheckInfo();
+        for (String fen : fens) {
+            State state = new State(zobrist);
+            new FenConverter().fromFen(state, fen);
+            int[] legal = new int[MoveGenerator.MAX_MOVES];
+            int legalCount = instance.generateLegalMoves(state, legal);
+
+            instance.computeCheckInfo(state, info);
+            int[] staged = new int[MoveGenerator.MAX_MOVES];
+            int captureCount = instance.generateCaptures(state, info, staged);
+            for (int i = 0; i < captureCount; i++) {
+                int move = staged[i];
+                boolean isCapture = state.getSquarePiece(Move.unpackTo(move)) != Piece.EMPTY;
+                boolean isPromotion = Move.unpackType(move) >= Move.PROMOTION_QUEEN && Move.unpackType(move) <= Move.PROMOTION_KNIGHT;
+                Assertions.assertTrue(isCapture || isPromotion || Move.unpackType(move) == Move.EN_PASSANT, fen);
+            }
+            int[] quiets = new int[MoveGenerator.MAX_MOVES];
+            int quietCount = instance.generateQuiets(state, info, quiets);
+            System.arraycopy(quiets, 0, staged, captureCount, quietCount);
+            int stagedCount = captureCount + quietCount;
+            Assertions.assertArrayEquals(sorted(legal, legalCount), sorted(staged, stagedCount), fen);
+
+            if (info.isCheck()) {
+                int evasionCount = instance.generateEvasions(state, info, staged);
+                Assertions.assertArrayEquals(sorted(legal, legalCount), sorted(staged, evasionCount), fen);
+            }
+        }
+    }
+
+    @Test
+    public void countMatchesGeneratedMoves() throws IOException {
+        MoveGenerator instance = new MoveGenerator();
+        UndoInfo undo = new UndoInfo();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("perft.txt")) {
+            Scanner scanner = new Scanner(is);
+            while (scanner.hasNext()) {
+                String fen = scanner.nextLine().split(",")[0];
+                State state = new State(zobrist);
+                new FenConverter().fromFen(state, fen);
+                int[] moves = new int[MoveGenerator.MAX_MOVES];
+                int moveCount = instance.generateLegalMoves(state, moves);
+                Assertions.assertEquals(moveCount, instance.countLegalMoves(state), fen);
+                for (int i = 0; i < moveCount; i++) {
+                    // children cover checks, pins and en passant positions which are rare among the roots
+                    Move.applyTo(moves[i], state, undo);
+                    int[] childMoves = new int[MoveGenerator.MAX_MOVES];
+                    Assertions.assertEquals(instance.generateLegalMoves(state, childMoves), instance.countLegalMoves(state), fen);
+                    Move.undo(moves[i], state, undo);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void isLegalMatchesGeneratedMoves() throws IOException {
+        MoveGenerator instance = new MoveGenerator();
+        List<State> states = new ArrayList<>();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("perft.txt")) {
+            Scanner scanner = new Scanner(is);
+            while (scanner.hasNext()) {
+                State state = new State(zobrist);
+                new FenConverter().fromFen(state, scanner.nextLine().split(",")[0]);
+                states.add(state);
+            }
+        }
+        // moves of other positions are exactly what a hash collision would produce
+        Set<Integer> candidates = new HashSet<>();
+        for (State state : states) {
+            instance.generatePseudoLegalMoves(state, move -> candidates.add(Move.pack32(move)));
+        }
+        CheckInfo info = new CheckInfo();
+        for (State state : states) {
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int moveCount = instance.generateLegalMoves(state, moves);
+            Set<Integer> legal = new HashSet<>();
+            for (int i = 0; i < moveCount; i++) {
+                legal.add(moves[i]);
+            }
+            candidates.addAll(legal);
+            instance.computeCheckInfo(state, info);
+            for (int candidate : candidates) {
+                Assertions.assertEquals(legal.contains(candidate), instance.isLegal(state, info, candidate),
+                        () -> Move.unpack32(candidate) + " in " + new FenConverter().toFen(state));
+            }
+        }
+    }
+
+    private static int[] sorted(int[] moves, int count) {
+        int[] result = Arrays.copyOf(moves, count);
+        Arrays.sort(result);
+        return result;
+    }
 }
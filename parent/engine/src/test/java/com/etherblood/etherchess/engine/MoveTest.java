@@ -1,6 +1,7 @@
 package com.etherblood.etherchess.engine;
 
 import com.etherblood.etherchess.engine.util.Castling;
+import com.etherblood.etherchess.engine.util.MaterialSignature;
 import com.etherblood.etherchess.engine.util.Piece;
 import com.etherblood.etherchess.engine.util.Square;
 import java.util.Random;
@@ -68,4 +69,108 @@ public class MoveTest {
         Assertions.assertEquals(Castling.A1 | Castling.A8 | Castling.H8, state.availableCastlings);
     }
 
+    @Test
+    public void packedMovesMatchMoveRecords() {
+        State state = new State(zobrist);
+        new FenConverter().fromFen(state, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+        MoveGenerator moveGen = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = moveGen.generateLegalMoves(state, moves);
+        Assertions.assertEquals(moveGen.generateLegalMoves(state).size(), count);
+        for (int i = 0; i < count; i++) {
+            Move move = Move.unpack32(moves[i]);
+            Assertions.assertEquals(moves[i], Move.pack32(move));
+
+            State expected = new State(zobrist);
+            expected.copyFrom(state);
+            move.applyTo(expected);
+            State actual = new State(zobrist);
+            actual.copyFrom(state);
+            Move.applyTo(moves[i], actual);
+            Assertions.assertEquals(expected.hash(), actual.hash());
+        }
+    }
+
+    @Test
+    public void undoRestoresState() {
+        // covers captures, promotions with capture, en passant, castling and castling right changes
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1"
+        };
+        MoveGenerator moveGen = new MoveGenerator();
+        FenConverter converter = new FenConverter();
+        UndoInfo undo = new UndoInfo();
+        for (String fen : fens) {
+            State state = new State(zobrist);
+            converter.fromFen(state, fen);
+            String expectedFen = converter.toFen(state);
+            long expectedHash = state.hash();
+            for (Move move : moveGen.generateLegalMoves(state)) {
+                move.applyTo(state, undo);
+                move.undo(state, undo);
+                Assertions.assertEquals(expectedFen, converter.toFen(state), move.toString());
+                Assertions.assertEquals(expectedHash, state.hash(), move.toString());
+            }
+        }
+    }
+
+    @Test
+    public void pawnHashOnlyChangesWithPawnsAndKings() {
+        State state = new State(zobrist);
+        new FenConverter().fromFen(state, FenConverter.DEFAULT_STARTPOSITION);
+        long pawnHash = state.pawnHash();
+        Move.defaultMove(Piece.KNIGHT, Square.G1, Square.F3).applyTo(state);
+        Move.defaultMove(Piece.KNIGHT, Square.G1, Square.F3).applyTo(state);
+        Move.defaultMove(Piece.KNIGHT, Square.F3, Square.G1).applyTo(state);
+        Move.defaultMove(Piece.KNIGHT, Square.F3, Square.G1).applyTo(state);
+        Assertions.assertEquals(pawnHash, state.pawnHash());
+        Assertions.assertNotEquals(state.hash(), state.pawnHash());
+
+        Move.pawnDouble(Square.E2, Square.E4).applyTo(state);
+        Assertions.assertNotEquals(MirrorZobrist.mirror(pawnHash), state.pawnHash());
+    }
+
+    @Test
+    public void materialSignatureRestoredByUndo() {
+        State state = new State(zobrist);
+        new FenConverter().fromFen(state, "1r2k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        long signature = state.materialSignature();
+        Assertions.assertEquals(1, MaterialSignature.count(signature, true, MaterialSignature.PAWNS));
+        Assertions.assertEquals(1, MaterialSignature.count(signature, false, MaterialSignature.ROOKS));
+
+        UndoInfo undo = new UndoInfo();
+        Move move = Move.promotion(Move.PROMOTION_QUEEN, Square.A7, Square.B8);
+        move.applyTo(state, undo);
+        // sides are mirrored after the move
+        Assertions.assertEquals(1, MaterialSignature.count(state.materialSignature(), false, MaterialSignature.QUEENS));
+        Assertions.assertEquals(0, MaterialSignature.count(state.materialSignature(), false, MaterialSignature.PAWNS));
+        Assertions.assertEquals(0, MaterialSignature.count(state.materialSignature(), true, MaterialSignature.ROOKS));
+
+        move.undo(state, undo);
+        Assertions.assertEquals(signature, state.materialSignature());
+    }
+
+    @Test
+    public void nullMoveOnlyPassesTheTurn() {
+        State state = new State(zobrist);
+        new FenConverter().fromFen(state, "rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 3");
+        long hash = state.hash();
+
+        UndoInfo undo = new UndoInfo();
+        Move.applyNullTo(state, undo);
+        Assertions.assertTrue(state.isWhite);
+        Assertions.assertEquals(State.NO_EN_PASSANT, state.enPassantSquare);
+        Assertions.assertEquals("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR w KQkq - 1 1", new FenConverter().toFen(state));
+        State expected = new State(zobrist);
+        new FenConverter().fromFen(expected, "rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR w KQkq - 1 3");
+        Assertions.assertEquals(expected.hash(), state.hash());
+
+        Move.undoNull(state, undo);
+        Assertions.assertFalse(state.isWhite);
+        Assertions.assertEquals(hash, state.hash());
+        Assertions.assertEquals("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", new FenConverter().toFen(state));
+    }
 }
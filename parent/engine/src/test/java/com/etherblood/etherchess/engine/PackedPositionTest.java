@@ -0,0 +1,81 @@
+package com.etherblood.etherchess.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PackedPositionTest {
+
+    private final MirrorZobrist zobrist = new MirrorZobrist(new Random(7)::nextLong);
+
+    @Test
+    public void roundTrip() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PackedPosition.BYTES);
+        State decoded = new State(zobrist);
+        for (State state : positions()) {
+            PackedPosition.write(state, buffer, 0);
+            PackedPosition.read(buffer, 0, decoded);
+            assertSameState(state, decoded);
+        }
+    }
+
+    @Test
+    public void fileRoundTrip(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("positions.bin");
+        List<State> positions = positions();
+        try (PositionFileWriter writer = new PositionFileWriter(path)) {
+            for (State state : positions) {
+                writer.add(state);
+            }
+        }
+        Assertions.assertEquals(PositionFile.HEADER_BYTES + (long) positions.size() * PackedPosition.BYTES, Files.size(path));
+
+        PositionFile file = PositionFile.open(path);
+        Assertions.assertEquals(positions.size(), file.size());
+        State decoded = new State(zobrist);
+        for (int i = positions.size() - 1; i >= 0; i--) {
+            file.read(i, decoded);
+            assertSameState(positions.get(i), decoded);
+        }
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> file.read(positions.size(), decoded));
+    }
+
+    private void assertSameState(State expected, State actual) {
+        Assertions.assertEquals(expected.hash(), actual.hash());
+        Assertions.assertEquals(expected.isWhite, actual.isWhite);
+        Assertions.assertEquals(expected.fiftyMovesCounter, actual.fiftyMovesCounter);
+        Assertions.assertEquals(new FenConverter().toFen(expected), new FenConverter().toFen(actual));
+    }
+
+    /***
+     * perft file positions and their children, which cover both sides to move, en passant and all castlings
+     */
+    private List<State> positions() throws IOException {
+        List<State> result = new ArrayList<>();
+        MoveGenerator moveGen = new MoveGenerator();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("perft.txt")) {
+            Scanner scanner = new Scanner(is);
+            while (scanner.hasNext()) {
+                State state = new State(zobrist);
+                new FenConverter().fromFen(state, scanner.nextLine().split(",")[0]);
+                result.add(state);
+                for (Move move : moveGen.generateLegalMoves(state)) {
+                    State child = new State(zobrist);
+                    child.copyFrom(state);
+                    move.applyTo(child);
+                    result.add(child);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -12,10 +12,17 @@ public class Perft {
 
     private final Table table;
     private final boolean verbose;
+    private final MoveGenerator moveGen = new MoveGenerator();
+    private final int[][] moveBuffers = new int[64][MoveGenerator.MAX_MOVES];
+    private final CheckInfo checkInfo = new CheckInfo();
+    private final UndoInfo[] undoBuffers = new UndoInfo[64];
 
     public Perft(Table table, boolean verbose) {
         this.table = table;
         this.verbose = verbose;
+        for (int i = 0; i < undoBuffers.length; i++) {
+            undoBuffers[i] = new UndoInfo();
+        }
     }
 
     public long perft(String fen, int depth) {
@@ -42,22 +49,23 @@ public class Perft {
         if (table.load(hash, entry) && (entry.raw & 0xff) == depth) {
             return entry.raw >>> 8;
         }
-        MoveGenerator moveGen = new MoveGenerator();
-        List<Move> legalMoves = new ArrayList<>();
-        moveGen.generateLegalMoves(state, legalMoves::add);
         long sum = 0;
         if (depth == 1) {
-            sum = legalMoves.size();
+            moveGen.computeCheckInfo(state, checkInfo);
+            sum = moveGen.countLegalMoves(state, checkInfo);
         } else {
-            State child = new State(state.zobrist);
-            for (Move move : legalMoves) {
+            int[] legalMoves = moveBuffers[depth];
+            int moveCount = moveGen.generateLegalMoves(state, checkInfo, legalMoves);
+            UndoInfo undo = undoBuffers[depth];
+            for (int i = 0; i < moveCount; i++) {
+                int move = legalMoves[i];
                 try {
-                    child.copyFrom(state);
-                    move.applyTo(child);
-                    assert moveGen.findOwnCheckers(child) == 0;
-                    sum += perft(child, depth - 1);
+                    Move.applyTo(move, state, undo);
+                    assert moveGen.findOwnCheckers(state) == 0;
+                    sum += perft(state, depth - 1);
+                    Move.undo(move, state, undo);
                 } catch (AssertionError e) {
-                    System.out.println(move);
+                    System.out.println(Move.unpack32(move));
                     throw e;
                 }
             }
@@ -86,8 +94,7 @@ public class Perft {
         if (depth < 1) {
             throw new IllegalArgumentException();
         }
-        State child = new State(state.zobrist);
-        MoveGenerator moveGen = new MoveGenerator();
+        UndoInfo undo = new UndoInfo();
         List<Move> legalMoves = new ArrayList<>();
         moveGen.generateLegalMoves(state, legalMoves::add);
         legalMoves.sort(Move.defaultComparator());
@@ -100,10 +107,10 @@ public class Perft {
         }
         for (Move move : legalMoves) {
             try {
-                child.copyFrom(state);
-                move.applyTo(child);
-                assert moveGen.findOwnCheckers(child) == 0;
-                result.put(move, perft(child, depth - 1));
+                move.applyTo(state, undo);
+                assert moveGen.findOwnCheckers(state) == 0;
+                result.put(move, perft(state, depth - 1));
+                move.undo(state, undo);
             } catch (AssertionError e) {
                 System.out.println(move);
                 throw e;
@@ -0,0 +1,159 @@
+package com.etherblood.etherchess.engine.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BucketTableTest {
+
+    // a single bucket, every key competes for the same 4 entries
+    private final BucketTable table = new BucketTable(2);
+    private final TableEntry entry = new TableEntry();
+
+    @Test
+    public void loadAndRemove() {
+        Assertions.assertFalse(table.load(1, entry));
+        store(1, 5, TableEntry.EXACT_BOUND);
+        Assertions.assertTrue(table.load(1, entry));
+        Assertions.assertEquals(5, TableEntry.depth(entry.raw));
+        Assertions.assertEquals(TableEntry.EXACT_BOUND, TableEntry.bounds(entry.raw));
+        Assertions.assertEquals(123, TableEntry.move(entry.raw));
+
+        store(1, 2, TableEntry.UPPER_BOUND);
+        Assertions.assertTrue(table.load(1, entry));
+        Assertions.assertEquals(2, TableEntry.depth(entry.raw), "same key is always overwritten");
+
+        table.remove(1);
+        Assertions.assertFalse(table.load(1, entry));
+    }
+
+    @Test
+    public void deepEntriesSurviveShallowFlood() {
+        store(1, 10, TableEntry.LOWER_BOUND);
+        store(2, 9, TableEntry.EXACT_BOUND);
+        store(3, 8, TableEntry.UPPER_BOUND);
+        for (long key = 100; key < 200; key++) {
+            store(key, 1, TableEntry.EXACT_BOUND);
+        }
+        Assertions.assertTrue(table.load(1, entry));
+        Assertions.assertTrue(table.load(2, entry));
+        Assertions.assertTrue(table.load(3, entry));
+        Assertions.assertTrue(table.load(199, entry), "the latest shallow entry is kept in the always replace slot");
+        Assertions.assertFalse(table.load(198, entry));
+    }
+
+    @Test
+    public void deeperEntryReplacesShallowest() {
+        store(1, 3, TableEntry.LOWER_BOUND);
+        store(2, 2, TableEntry.LOWER_BOUND);
+        store(3, 4, TableEntry.LOWER_BOUND);
+        store(4, 5, TableEntry.LOWER_BOUND);
+        Assertions.assertTrue(table.load(1, entry));
+        Assertions.assertFalse(table.load(2, entry));
+        Assertions.assertTrue(table.load(3, entry));
+        Assertions.assertTrue(table.load(4, entry));
+    }
+
+    @Test
+    public void staleEntriesAreReplaced() {
+        store(1, 5, TableEntry.EXACT_BOUND);
+        store(2, 5, TableEntry.EXACT_BOUND);
+        store(3, 5, TableEntry.EXACT_BOUND);
+        Assertions.assertEquals(750, table.fillPermill());
+        table.newSearch();
+        Assertions.assertEquals(0, table.fillPermill());
+        store(4, 5, TableEntry.UPPER_BOUND);
+        store(5, 5, TableEntry.UPPER_BOUND);
+        store(6, 5, TableEntry.UPPER_BOUND);
+        Assertions.assertFalse(table.load(1, entry));
+        Assertions.assertFalse(table.load(2, entry));
+        Assertions.assertFalse(table.load(3, entry));
+        Assertions.assertTrue(table.load(4, entry));
+        Assertions.assertTrue(table.load(5, entry));
+        Assertions.assertTrue(table.load(6, entry));
+        Assertions.assertEquals(750, table.fillPermill());
+    }
+
+    @Test
+    public void newGameOnlyAgesEntries() {
+        // ageing by one search costs 8 plies, so this entry ranks below the new ones
+        store(1, 22, TableEntry.EXACT_BOUND);
+        table.newGame();
+        Assertions.assertTrue(table.load(1, entry), "entries stay valid for the same position");
+        Assertions.assertEquals(0, table.fillPermill());
+        store(2, 20, TableEntry.EXACT_BOUND);
+        store(3, 20, TableEntry.EXACT_BOUND);
+        store(4, 20, TableEntry.EXACT_BOUND);
+        Assertions.assertFalse(table.load(1, entry));
+    }
+
+    @Test
+    public void chunksCoverEveryBucket() {
+        // 64 buckets in chunks of 2 buckets, keys k, k+64, k+128 and k+192 fill bucket k
+        // the last key of each bucket is the shallowest, so it goes to the always replace entry
+        BucketTable chunked = new BucketTable(8, 64, 128);
+        Assertions.assertEquals(256, chunked.size());
+        for (long key = 0; key < 256; key++) {
+            entry.raw = chunkedRaw(key);
+            chunked.store(key, entry);
+        }
+        for (long key = 0; key < 256; key++) {
+            Assertions.assertTrue(chunked.load(key, entry));
+            Assertions.assertEquals(chunkedRaw(key), TableEntry.withGeneration(entry.raw, 0));
+        }
+        Assertions.assertEquals(1000, chunked.fillPermill());
+    }
+
+    @Test
+    public void concurrentAccessNeverLoadsForeignEntries() throws Exception {
+        BucketTable shared = new BucketTable(6);
+        long[] keys = new Random(3).longs(256).toArray();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> hits = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                SplittableRandom random = new SplittableRandom(thread);
+                hits.add(executor.submit(() -> {
+                    TableEntry local = new TableEntry();
+                    long threadHits = 0;
+                    for (int i = 0; i < 500_000; i++) {
+                        long key = keys[random.nextInt(keys.length)];
+                        if (random.nextBoolean()) {
+                            local.raw = expectedRaw(key);
+                            shared.store(key, local);
+                        } else if (shared.load(key, local)) {
+                            // every field except the generation is derived from the key
+                            Assertions.assertEquals(expectedRaw(key), TableEntry.withGeneration(local.raw, 0));
+                            threadHits++;
+                        }
+                    }
+                    return threadHits;
+                }));
+            }
+            for (Future<Long> future : hits) {
+                Assertions.assertTrue(future.get() > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long chunkedRaw(long key) {
+        return (key << 32) | ((long) TableEntry.EXACT_BOUND << TableEntry.BOUNDS_SHIFT) | (4 - key / 64);
+    }
+
+    private static long expectedRaw(long key) {
+        return (key & 0xffffffff_ffff0000L) | ((long) TableEntry.LOWER_BOUND << TableEntry.BOUNDS_SHIFT) | (1 + (key & 0x3f));
+    }
+
+    private void store(long key, int depth, int bounds) {
+        entry.raw = (123L << 32) | ((long) bounds << TableEntry.BOUNDS_SHIFT) | depth;
+        table.store(key, entry);
+    }
+}
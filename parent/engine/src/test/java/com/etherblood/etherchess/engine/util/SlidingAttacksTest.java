@@ -0,0 +1,62 @@
+package com.etherblood.etherchess.engine.util;
+
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.State;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.Scanner;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SlidingAttacksTest {
+
+    private final SlidingAttacks expected = new ObstructionDifferenceAttacks();
+    private final SlidingAttacks actual = new MagicAttacks();
+
+    @Test
+    public void allRelevantOccupancies() {
+        for (int square = 0; square < 64; square++) {
+            long rookLines = SquareSet.fileOf(square) | SquareSet.rankOf(square);
+            assertAllSubsets(square, rookLines & ~SquareSet.of(square));
+            long bishopLines = SquareSet.diagonalOf(square) | SquareSet.antiDiagonalOf(square);
+            assertAllSubsets(square, bishopLines & ~SquareSet.of(square));
+        }
+    }
+
+    @Test
+    public void perftFilePositions() throws IOException {
+        // same positions as PerftTest, compares both backends on every square of every position
+        State state = new State(new MirrorZobrist(new Random(7)::nextLong));
+        FenConverter converter = new FenConverter();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("perft.txt")) {
+            Scanner scanner = new Scanner(is);
+            while (scanner.hasNext()) {
+                String fen = scanner.nextLine().split(",")[0];
+                converter.fromFen(state, fen);
+                for (int square = 0; square < 64; square++) {
+                    assertEquals(square, state.occupied(), fen);
+                    assertEquals(square, state.own(), fen);
+                    assertEquals(square, state.opp(), fen);
+                }
+            }
+        }
+    }
+
+    private void assertAllSubsets(int square, long mask) {
+        long occupied = 0;
+        do {
+            assertEquals(square, occupied, null);
+            assertEquals(square, occupied | SquareSet.OUTER, null);
+            occupied = (occupied - mask) & mask;
+        } while (occupied != 0);
+    }
+
+    private void assertEquals(int square, long occupied, String fen) {
+        Assertions.assertEquals(expected.rookRays(square, occupied), actual.rookRays(square, occupied),
+                () -> "rookRays(" + Square.toString(square) + ", 0x" + Long.toHexString(occupied) + ") " + fen);
+        Assertions.assertEquals(expected.bishopRays(square, occupied), actual.bishopRays(square, occupied),
+                () -> "bishopRays(" + Square.toString(square) + ", 0x" + Long.toHexString(occupied) + ") " + fen);
+    }
+}
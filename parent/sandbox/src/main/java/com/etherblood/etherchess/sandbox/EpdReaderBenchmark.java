@@ -0,0 +1,100 @@
+package com.etherblood.etherchess.sandbox;
+
+import com.etherblood.etherchess.engine.EpdEntry;
+import com.etherblood.etherchess.engine.EpdReader;
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * compares FenConverter on lines of a reader with EpdReader on the raw bytes, sequential and parallel
+ * positions are generated from random games
+ */
+public class EpdReaderBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int positions = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = 5;
+
+        MirrorZobrist zobrist = new MirrorZobrist(new Random(425)::nextLong);
+        byte[] bytes = randomPositions(zobrist, positions, new Random(7));
+        System.out.println(positions + " positions, " + bytes.length / 1024 + " KiB");
+
+        for (int round = 0; round < rounds; round++) {
+            long startNanos = System.nanoTime();
+            long fenSum = fenConverter(zobrist, bytes);
+            long fenNanos = System.nanoTime() - startNanos;
+
+            startNanos = System.nanoTime();
+            long epdSum = epdReader(zobrist, bytes);
+            long epdNanos = System.nanoTime() - startNanos;
+
+            startNanos = System.nanoTime();
+            AtomicLong parallelSum = new AtomicLong();
+            EpdReader.parallelForEach(ByteBuffer.wrap(bytes), zobrist, (state, entry) -> parallelSum.addAndGet(state.hash()));
+            long parallelNanos = System.nanoTime() - startNanos;
+
+            if (fenSum != epdSum || fenSum != parallelSum.get()) {
+                throw new AssertionError();
+            }
+            System.out.println("round " + round
+                    + ": FenConverter " + fenNanos / 1_000_000 + " ms"
+                    + ", EpdReader " + epdNanos / 1_000_000 + " ms"
+                    + ", EpdReader parallel " + parallelNanos / 1_000_000 + " ms");
+        }
+    }
+
+    private static long fenConverter(MirrorZobrist zobrist, byte[] bytes) throws IOException {
+        FenConverter converter = new FenConverter();
+        State state = new State(zobrist);
+        long sum = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                converter.fromFen(state, line);
+                sum += state.hash();
+            }
+        }
+        return sum;
+    }
+
+    private static long epdReader(MirrorZobrist zobrist, byte[] bytes) {
+        EpdReader reader = new EpdReader(ByteBuffer.wrap(bytes));
+        State state = new State(zobrist);
+        EpdEntry entry = new EpdEntry();
+        long sum = 0;
+        while (reader.next(state, entry)) {
+            sum += state.hash();
+        }
+        return sum;
+    }
+
+    private static byte[] randomPositions(MirrorZobrist zobrist, int count, Random random) {
+        FenConverter converter = new FenConverter();
+        MoveGenerator moveGen = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        State state = new State(zobrist);
+        StringBuilder builder = new StringBuilder();
+        converter.fromFen(state, FenConverter.DEFAULT_STARTPOSITION);
+        for (int i = 0; i < count; i++) {
+            int moveCount = moveGen.generateLegalMoves(state, moves);
+            if (moveCount == 0 || state.fiftyMovesCounter >= 100) {
+                converter.fromFen(state, FenConverter.DEFAULT_STARTPOSITION);
+                moveCount = moveGen.generateLegalMoves(state, moves);
+            }
+            Move.applyTo(moves[random.nextInt(moveCount)], state);
+            builder.append(converter.toFen(state)).append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
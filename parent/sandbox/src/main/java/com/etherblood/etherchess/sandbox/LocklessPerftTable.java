@@ -0,0 +1,73 @@
+package com.etherblood.etherchess.sandbox;
+
+import com.etherblood.etherchess.engine.table.Table;
+import com.etherblood.etherchess.engine.table.TableEntry;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/***
+ * thread safe always-replace table without locks
+ * the key is stored xored with the data, an entry torn by concurrent stores fails verification and reads as a miss
+ */
+public class LocklessPerftTable implements Table {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long EMPTY_RAW = 0;
+
+    private final long[] table;
+    private final int indexMask;
+
+    public LocklessPerftTable(int logSize) {
+        this.table = new long[2 << logSize];
+        this.indexMask = (2 << logSize) - 2;
+        clear();
+    }
+
+    @Override
+    public boolean load(long hash, TableEntry entry) {
+        int index = indexMask & (int) hash;
+        long raw = (long) SLOTS.getOpaque(table, index + 1);
+        long key = (long) SLOTS.getOpaque(table, index);
+        if ((key ^ raw) == hash && raw != EMPTY_RAW) {
+            entry.raw = raw;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void store(long hash, TableEntry entry) {
+        assert entry.raw != EMPTY_RAW;
+        int index = indexMask & (int) hash;
+        SLOTS.setOpaque(table, index, hash ^ entry.raw);
+        SLOTS.setOpaque(table, index + 1, entry.raw);
+    }
+
+    @Override
+    public void remove(long hash) {
+        int index = indexMask & (int) hash;
+        long raw = (long) SLOTS.getOpaque(table, index + 1);
+        if (((long) SLOTS.getOpaque(table, index) ^ raw) == hash) {
+            SLOTS.setOpaque(table, index + 1, EMPTY_RAW);
+        }
+    }
+
+    @Override
+    public final void clear() {
+        Arrays.fill(table, EMPTY_RAW);
+    }
+
+    @Override
+    public int fillPermill() {
+        // sample the first entries, counting them all would be too slow for large tables
+        int samples = Math.min(1000, table.length / 2);
+        int full = 0;
+        for (int i = 0; i < samples; i++) {
+            if ((long) SLOTS.getOpaque(table, 2 * i + 1) != EMPTY_RAW) {
+                full++;
+            }
+        }
+        return 1000 * full / samples;
+    }
+}
@@ -0,0 +1,105 @@
+package com.etherblood.etherchess.sandbox;
+
+import com.etherblood.etherchess.engine.CheckInfo;
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.UndoInfo;
+import java.util.Random;
+
+/***
+ * compares copy-make (State.copyFrom per child) with make-unmake (undo info per ply) on table-less perft
+ */
+public class MakeUnmakeComparison {
+
+    private final MoveGenerator moveGen = new MoveGenerator();
+    private final int[][] moveBuffers = new int[64][MoveGenerator.MAX_MOVES];
+    private final CheckInfo checkInfo = new CheckInfo();
+    private final State[] children = new State[64];
+    private final UndoInfo[] undoBuffers = new UndoInfo[64];
+
+    public MakeUnmakeComparison(MirrorZobrist zobrist) {
+        for (int i = 0; i < 64; i++) {
+            children[i] = new State(zobrist);
+            undoBuffers[i] = new UndoInfo();
+        }
+    }
+
+    public static void main(String[] args) {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -";
+        int depth = 5;
+        int rounds = 5;
+
+        MirrorZobrist zobrist = new MirrorZobrist(new Random(425)::nextLong);
+        State state = new State(zobrist);
+        new FenConverter().fromFen(state, fen);
+        MakeUnmakeComparison comparison = new MakeUnmakeComparison(zobrist);
+
+        System.out.println(fen);
+        System.out.println(state.toBoardString());
+        System.out.println("warmup...");
+        for (int i = 0; i < depth; i++) {
+            comparison.copyMake(state, i);
+            comparison.makeUnmake(state, i);
+        }
+        System.out.println("calculating...");
+        long copyMakeNanos = 0;
+        long makeUnmakeNanos = 0;
+        long nodes = 0;
+        for (int round = 0; round < rounds; round++) {
+            // alternate both approaches so neither profits from a warmer machine
+            long startNanos = System.nanoTime();
+            nodes = comparison.copyMake(state, depth);
+            copyMakeNanos += System.nanoTime() - startNanos;
+
+            startNanos = System.nanoTime();
+            if (comparison.makeUnmake(state, depth) != nodes) {
+                throw new AssertionError();
+            }
+            makeUnmakeNanos += System.nanoTime() - startNanos;
+        }
+        System.out.println("perft(" + depth + ")=" + nodes + ", " + rounds + " rounds each");
+        System.out.println("copy-make: " + copyMakeNanos / 1_000_000 + " ms (" + Math.round((double) rounds * nodes * 1_000_000 / copyMakeNanos) + " knps)");
+        System.out.println("make-unmake: " + makeUnmakeNanos / 1_000_000 + " ms (" + Math.round((double) rounds * nodes * 1_000_000 / makeUnmakeNanos) + " knps)");
+    }
+
+    private long copyMake(State state, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] legalMoves = moveBuffers[depth];
+        int moveCount = moveGen.generateLegalMoves(state, checkInfo, legalMoves);
+        if (depth == 1) {
+            return moveCount;
+        }
+        long sum = 0;
+        State child = children[depth];
+        for (int i = 0; i < moveCount; i++) {
+            child.copyFrom(state);
+            Move.applyTo(legalMoves[i], child);
+            sum += copyMake(child, depth - 1);
+        }
+        return sum;
+    }
+
+    private long makeUnmake(State state, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] legalMoves = moveBuffers[depth];
+        int moveCount = moveGen.generateLegalMoves(state, checkInfo, legalMoves);
+        if (depth == 1) {
+            return moveCount;
+        }
+        long sum = 0;
+        UndoInfo undo = undoBuffers[depth];
+        for (int i = 0; i < moveCount; i++) {
+            Move.applyTo(legalMoves[i], state, undo);
+            sum += makeUnmake(state, depth - 1);
+            Move.undo(legalMoves[i], state, undo);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,195 @@
+package com.etherblood.etherchess.sandbox;
+
+import com.etherblood.etherchess.engine.CheckInfo;
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.UndoInfo;
+import com.etherblood.etherchess.engine.table.Table;
+import com.etherblood.etherchess.engine.table.TableEntry;
+import com.etherblood.etherchess.engine.util.LongAlgebraicNotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/***
+ * perft/divide on a fork-join pool, every node with more than splitDepth plies remaining forks one task per move
+ * all tasks share a thread safe table
+ */
+public class ParallelPerft {
+
+    private final Table table;
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private final MoveGenerator moveGen = new MoveGenerator();
+    // tasks below the split depth run on the buffers of their worker thread, a sequential perft never forks
+    private final ThreadLocal<SequentialPerft> sequentialPerfts = ThreadLocal.withInitial(SequentialPerft::new);
+
+    public ParallelPerft(Table table, ForkJoinPool pool, int splitDepth) {
+        if (splitDepth < 1) {
+            throw new IllegalArgumentException(Integer.toString(splitDepth));
+        }
+        this.table = table;
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    public static void main(String[] args) {
+        String fen = args.length > 0 ? args[0] : FenConverter.DEFAULT_STARTPOSITION;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int splitDepth = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        State state = new State(new MirrorZobrist(new Random(425)::nextLong));
+        new FenConverter().fromFen(state, fen);
+        ParallelPerft perft = new ParallelPerft(new LocklessPerftTable(25), new ForkJoinPool(threads), splitDepth);
+
+        System.out.println(fen);
+        System.out.println(state.toBoardString());
+        System.out.println("threads: " + threads + ", split depth: " + splitDepth);
+        System.out.println("calculating...");
+        long startNanos = System.nanoTime();
+        long sum = 0;
+        for (Divide divide : perft.divide(state, depth)) {
+            System.out.println(divide.move() + ": " + divide.count());
+            sum += divide.count();
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        System.out.println();
+        System.out.println("perft(" + depth + ")=" + sum);
+        long durationMillis = Math.max(1, durationNanos / 1_000_000);
+        System.out.println("in " + durationMillis + " ms (" + Math.round((double) sum / durationMillis) + " knps)");
+        System.out.println("table fill: " + perft.table.fillPermill() / 10.0 + "%");
+        perft.pool.shutdown();
+    }
+
+    public long perft(State state, int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException(Integer.toString(depth));
+        }
+        if (depth == 0) {
+            return 1;
+        }
+        return pool.invoke(new PerftTask(copy(state), depth));
+    }
+
+    /***
+     * perft results per root move in generation order, root moves are always searched in parallel
+     */
+    public List<Divide> divide(State state, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException(Integer.toString(depth));
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int moveCount = moveGen.generateLegalMoves(state, moves);
+        List<PerftTask> tasks = new ArrayList<>();
+        for (int i = 0; i < moveCount; i++) {
+            State child = copy(state);
+            Move.applyTo(moves[i], child);
+            tasks.add(new PerftTask(child, depth - 1));
+        }
+        tasks.forEach(pool::execute);
+        List<Divide> result = new ArrayList<>();
+        for (int i = 0; i < moveCount; i++) {
+            String move = LongAlgebraicNotation.toLanString(state.isWhite, Move.unpack32(moves[i]));
+            result.add(new Divide(move, tasks.get(i).join()));
+        }
+        return result;
+    }
+
+    private static State copy(State state) {
+        State copy = new State(state.zobrist);
+        copy.copyFrom(state);
+        return copy;
+    }
+
+    public record Divide(String move, long count) {
+    }
+
+    private class PerftTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final State state;
+        private final int depth;
+
+        PerftTask(State state, int depth) {
+            this.state = state;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth == 0) {
+                return 1L;
+            }
+            if (depth <= splitDepth) {
+                return sequentialPerfts.get().perft(state, depth);
+            }
+            TableEntry entry = new TableEntry();
+            long hash = state.hash();
+            if (table.load(hash, entry) && (entry.raw & 0xff) == depth) {
+                return entry.raw >>> 8;
+            }
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int moveCount = moveGen.generateLegalMoves(state, moves);
+            List<PerftTask> tasks = new ArrayList<>(moveCount);
+            for (int i = 0; i < moveCount; i++) {
+                State child = copy(state);
+                Move.applyTo(moves[i], child);
+                tasks.add(new PerftTask(child, depth - 1));
+            }
+            long sum = 0;
+            for (PerftTask task : invokeAll(tasks)) {
+                sum += task.join();
+            }
+            entry.raw = (sum << 8) | depth;
+            table.store(hash, entry);
+            return sum;
+        }
+    }
+
+    /***
+     * single threaded make-unmake perft below the split depth, one per worker thread
+     */
+    private class SequentialPerft {
+
+        private final int[][] moveBuffers = new int[splitDepth + 1][MoveGenerator.MAX_MOVES];
+        private final UndoInfo[] undoBuffers = new UndoInfo[splitDepth + 1];
+        private final CheckInfo checkInfo = new CheckInfo();
+        private final TableEntry entry = new TableEntry();
+
+        SequentialPerft() {
+            for (int i = 0; i < undoBuffers.length; i++) {
+                undoBuffers[i] = new UndoInfo();
+            }
+        }
+
+        long perft(State state, int depth) {
+            if (depth == 1) {
+                moveGen.computeCheckInfo(state, checkInfo);
+                return moveGen.countLegalMoves(state, checkInfo);
+            }
+            long hash = state.hash();
+            if (table.load(hash, entry) && (entry.raw & 0xff) == depth) {
+                return entry.raw >>> 8;
+            }
+            int[] moves = moveBuffers[depth];
+            int moveCount = moveGen.generateLegalMoves(state, checkInfo, moves);
+            UndoInfo undo = undoBuffers[depth];
+            long sum = 0;
+            for (int i = 0; i < moveCount; i++) {
+                Move.applyTo(moves[i], state, undo);
+                sum += perft(state, depth - 1);
+                Move.undo(moves[i], state, undo);
+            }
+            entry.raw = (sum << 8) | depth;
+            table.store(hash, entry);
+            return sum;
+        }
+    }
+}
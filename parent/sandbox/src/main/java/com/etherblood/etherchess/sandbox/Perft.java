@@ -1,14 +1,16 @@
 package com.etherblood.etherchess.sandbox;
 
+import com.etherblood.etherchess.engine.CheckInfo;
 import com.etherblood.etherchess.engine.FenConverter;
 import com.etherblood.etherchess.engine.MirrorZobrist;
 import com.etherblood.etherchess.engine.Move;
 import com.etherblood.etherchess.engine.MoveGenerator;
 import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.UndoInfo;
 import com.etherblood.etherchess.engine.table.AlwaysReplaceTable;
 import com.etherblood.etherchess.engine.table.Table;
 import com.etherblood.etherchess.engine.table.TableEntry;
-import java.util.ArrayList;
+import com.etherblood.etherchess.engine.util.PieceSquareSet;
 import java.util.Random;
 
 public class Perft {
@@ -16,6 +18,15 @@ public class Perft {
     private final Table table = new AlwaysReplaceTable(25);
     //    private final Table table = new NoopTable();
     private final MoveGenerator moveGen = new MoveGenerator();
+    private final int[][] moveBuffers = new int[64][MoveGenerator.MAX_MOVES];
+    private final CheckInfo checkInfo = new CheckInfo();
+    private final UndoInfo[] undoBuffers = new UndoInfo[64];
+
+    public Perft() {
+        for (int i = 0; i < undoBuffers.length; i++) {
+            undoBuffers[i] = new UndoInfo();
+        }
+    }
 
     public static void main(String[] args) {
         String fen = FenConverter.DEFAULT_STARTPOSITION;
@@ -28,6 +39,7 @@ public class Perft {
 
         System.out.println(fen);
         System.out.println(state.toBoardString());
+        System.out.println("sliding attacks: " + PieceSquareSet.slidingAttacks().getClass().getSimpleName());
         System.out.println("warmup...");
         for (int i = 0; i < depth; i++) {
             perft.perft(state, i);
@@ -61,18 +73,19 @@ public class Perft {
         if (table.load(hash, entry) && (entry.raw & 0xff) == depth) {
             return entry.raw >>> 8;
         }
-        ArrayList<Move> legalMoves = new ArrayList<>();
-        moveGen.generateLegalMoves(state, legalMoves::add);
         long sum = 0;
         if (depth == 1) {
-            sum += legalMoves.size();
+            moveGen.computeCheckInfo(state, checkInfo);
+            sum += moveGen.countLegalMoves(state, checkInfo);
         } else {
-            State child = new State(state.zobrist);
-            for (Move move : legalMoves) {
-                child.copyFrom(state);
-                move.applyTo(child);
-                assert moveGen.findOwnCheckers(child) == 0;
-                sum += innerPerft(child, depth - 1);
+            int[] legalMoves = moveBuffers[depth];
+            int moveCount = moveGen.generateLegalMoves(state, checkInfo, legalMoves);
+            UndoInfo undo = undoBuffers[depth];
+            for (int i = 0; i < moveCount; i++) {
+                Move.applyTo(legalMoves[i], state, undo);
+                assert moveGen.findOwnCheckers(state) == 0;
+                sum += innerPerft(state, depth - 1);
+                Move.undo(legalMoves[i], state, undo);
             }
         }
         entry.raw = (sum << 8) | depth;
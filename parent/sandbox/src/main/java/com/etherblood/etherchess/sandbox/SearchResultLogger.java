@@ -5,17 +5,25 @@ import com.etherblood.etherchess.uci.SearchResult;
 import com.etherblood.etherchess.uci.SearchStats;
 
 public class SearchResultLogger implements SearchResult {
+
+    private long previousNodes;
+
     @Override
     public void stats(SearchStats stats) {
         System.out.println("depth: " + stats.depth() + " (seldepth: " + (stats.seldepth()) + ")");
         System.out.println("score: " + stats.scoreCp());
         System.out.println(stats.nodes() + " nodes in " + stats.millis() + " ms (" + Math.round((double) stats.nodes() / stats.millis()) + "knps)");
-        System.out.println("branching: " + Math.log(stats.nodes()) / Math.log(stats.depth()));
+        // effective branching factor, node counts of an iterative deepening search include all previous iterations
+        if (previousNodes != 0) {
+            System.out.println("branching: " + (double) stats.nodes() / previousNodes);
+        }
+        previousNodes = stats.nodes();
         System.out.println();
     }
 
     @Override
     public void bestMove(String move) {
+        previousNodes = 0;
         System.out.println(move);
         System.out.println();
     }
@@ -0,0 +1,126 @@
+package com.etherblood.etherchess.sandbox;
+
+import com.etherblood.etherchess.engine.AbsoluteMoveGenerator;
+import com.etherblood.etherchess.engine.AbsoluteState;
+import com.etherblood.etherchess.engine.CheckInfo;
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.Move;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.UndoInfo;
+import java.util.Random;
+
+/***
+ * compares relative (State, mirrored every move) with absolute (AbsoluteState, white/black) square sets on table-less perft
+ * the first argument selects a single representation: "relative" or "absolute", both are measured by default
+ * both update the zobrist hash and fifty moves counter on every move, only State also maintains a pawn hash, material signature and mailbox
+ */
+public class StateRepresentationComparison {
+
+    private final MoveGenerator moveGen = new MoveGenerator();
+    private final AbsoluteMoveGenerator absoluteMoveGen = new AbsoluteMoveGenerator();
+    private final int[][] moveBuffers = new int[64][MoveGenerator.MAX_MOVES];
+    private final CheckInfo checkInfo = new CheckInfo();
+    private final UndoInfo[] undoBuffers = new UndoInfo[64];
+
+    public StateRepresentationComparison() {
+        for (int i = 0; i < 64; i++) {
+            undoBuffers[i] = new UndoInfo();
+        }
+    }
+
+    public static void main(String[] args) {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -";
+        int depth = 5;
+        int rounds = 5;
+        String selection = args.length > 0 ? args[0] : "both";
+        boolean measureRelative = !selection.equals("absolute");
+        boolean measureAbsolute = !selection.equals("relative");
+
+        MirrorZobrist zobrist = new MirrorZobrist(new Random(425)::nextLong);
+        State state = new State(zobrist);
+        new FenConverter().fromFen(state, fen);
+        AbsoluteState absoluteState = new AbsoluteState(zobrist);
+        new FenConverter().fromFen(absoluteState, fen);
+        StateRepresentationComparison comparison = new StateRepresentationComparison();
+
+        System.out.println(fen);
+        System.out.println(state.toBoardString());
+        System.out.println("warmup...");
+        for (int i = 0; i < depth; i++) {
+            if (measureRelative) {
+                comparison.relative(state, i);
+            }
+            if (measureAbsolute) {
+                comparison.absolute(absoluteState, i);
+            }
+        }
+        System.out.println("calculating...");
+        long relativeNanos = 0;
+        long absoluteNanos = 0;
+        long nodes = 0;
+        for (int round = 0; round < rounds; round++) {
+            // alternate both representations so neither profits from a warmer machine
+            if (measureRelative) {
+                long startNanos = System.nanoTime();
+                nodes = comparison.relative(state, depth);
+                relativeNanos += System.nanoTime() - startNanos;
+            }
+            if (measureAbsolute) {
+                long startNanos = System.nanoTime();
+                long absoluteNodes = comparison.absolute(absoluteState, depth);
+                absoluteNanos += System.nanoTime() - startNanos;
+                if (measureRelative && absoluteNodes != nodes) {
+                    throw new AssertionError(absoluteNodes + " != " + nodes);
+                }
+                nodes = absoluteNodes;
+            }
+        }
+        System.out.println("perft(" + depth + ")=" + nodes + ", " + rounds + " rounds each");
+        if (measureRelative) {
+            System.out.println("relative: " + relativeNanos / 1_000_000 + " ms (" + Math.round((double) rounds * nodes * 1_000_000 / relativeNanos) + " knps)");
+        }
+        if (measureAbsolute) {
+            System.out.println("absolute: " + absoluteNanos / 1_000_000 + " ms (" + Math.round((double) rounds * nodes * 1_000_000 / absoluteNanos) + " knps)");
+        }
+    }
+
+    private long relative(State state, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] legalMoves = moveBuffers[depth];
+        int moveCount = moveGen.generateLegalMoves(state, checkInfo, legalMoves);
+        if (depth == 1) {
+            return moveCount;
+        }
+        long sum = 0;
+        UndoInfo undo = undoBuffers[depth];
+        for (int i = 0; i < moveCount; i++) {
+            Move.applyTo(legalMoves[i], state, undo);
+            sum += relative(state, depth - 1);
+            Move.undo(legalMoves[i], state, undo);
+        }
+        return sum;
+    }
+
+    private long absolute(AbsoluteState state, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] legalMoves = moveBuffers[depth];
+        int moveCount = absoluteMoveGen.generateLegalMoves(state, legalMoves);
+        if (depth == 1) {
+            return moveCount;
+        }
+        long sum = 0;
+        UndoInfo undo = undoBuffers[depth];
+        for (int i = 0; i < moveCount; i++) {
+            state.applyTo(legalMoves[i], undo);
+            sum += absolute(state, depth - 1);
+            state.undo(legalMoves[i], undo);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,87 @@
+package com.etherblood.etherchess.sandbox;
+
+import com.etherblood.etherchess.bot.HashHistory;
+import com.etherblood.etherchess.bot.NoopSearchResult;
+import com.etherblood.etherchess.bot.ParallelSearch;
+import com.etherblood.etherchess.bot.evaluation.PieceSquareEvaluation;
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.MoveGenerator;
+import com.etherblood.etherchess.engine.State;
+import com.etherblood.etherchess.engine.table.BucketTable;
+import java.util.Arrays;
+import java.util.Random;
+
+/***
+ * time to reach a fixed depth over a fixed position set, for each parallel mode and thread count
+ * every position starts with a cleared table and move history, speedups are relative to the first thread count of the same mode
+ * arguments: depth (default 9), comma separated thread counts (default 1,4,16,32)
+ */
+public class TimeToDepthBenchmark {
+
+    private static final String[] POSITIONS = {
+            FenConverter.DEFAULT_STARTPOSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP1QBPPP/R3KB1R w KQ - 0 8",
+            "r2q1rk1/1p1nbppp/p2pbn2/4p3/4P3/1NN1BP2/PPPQ2PP/2KR1B1R w - - 0 11",
+            "2r2rk1/pp3ppp/2n1pn2/q2p4/3P4/P1PBPN2/5PPP/R2QK2R w KQ - 0 14",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "6k1/5p2/4p1p1/3pP2p/p2P1P1P/P1r3P1/2R3K1/8 b - - 0 40",
+    };
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        int[] threadCounts = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 4, 16, 32};
+        MirrorZobrist zobrist = new MirrorZobrist(new Random(12354)::nextLong);
+        BucketTable table = new BucketTable(22);
+
+        // warm up the jit, otherwise the first configuration pays for compilation
+        for (ParallelSearch.Mode mode : ParallelSearch.Mode.values()) {
+            run(new ParallelSearch(table, new PieceSquareEvaluation(), new MoveGenerator(), 2, mode), table, zobrist, depth - 1);
+        }
+
+        System.out.println("depth " + depth + ", " + POSITIONS.length + " positions, " + Runtime.getRuntime().availableProcessors() + " processors");
+        for (ParallelSearch.Mode mode : ParallelSearch.Mode.values()) {
+            long baselineNanos = 0;
+            for (int threads : threadCounts) {
+                ParallelSearch search = new ParallelSearch(table, new PieceSquareEvaluation(), new MoveGenerator(), threads, mode);
+                long[] result = run(search, table, zobrist, depth);
+                long nanos = result[0];
+                long nodes = result[1];
+                long firstMoveCutoffPermill = result[2] / POSITIONS.length;
+                if (baselineNanos == 0) {
+                    baselineNanos = nanos;
+                }
+                System.out.println(mode
+                        + ", " + threads + " threads: " + nanos / 1_000_000 + " ms"
+                        + ", speedup " + String.format("%.2f", (double) baselineNanos / nanos)
+                        + ", " + nodes + " nodes"
+                        + ", " + firstMoveCutoffPermill / 10.0 + "% first move cutoffs");
+            }
+        }
+    }
+
+    /***
+     * returns total nanos, nodes and the sum of first move cutoff permills
+     */
+    private static long[] run(ParallelSearch search, BucketTable table, MirrorZobrist zobrist, int depth) {
+        long nanos = 0;
+        long nodes = 0;
+        long firstMoveCutoffPermill = 0;
+        for (String fen : POSITIONS) {
+            State state = new State(zobrist);
+            new FenConverter().fromFen(state, fen);
+            table.clear();
+            search.newGame();
+            long startNanos = System.nanoTime();
+            search.findBest(state, new HashHistory(state.hash()), depth, new NoopSearchResult());
+            nanos += System.nanoTime() - startNanos;
+            nodes += search.nodes();
+            firstMoveCutoffPermill += search.firstMoveCutoffPermill();
+        }
+        return new long[]{nanos, nodes, firstMoveCutoffPermill};
+    }
+}
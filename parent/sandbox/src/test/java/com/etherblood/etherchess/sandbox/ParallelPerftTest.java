@@ -0,0 +1,56 @@
+package com.etherblood.etherchess.sandbox;
+
+import com.etherblood.etherchess.engine.FenConverter;
+import com.etherblood.etherchess.engine.MirrorZobrist;
+import com.etherblood.etherchess.engine.State;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ParallelPerftTest {
+
+    // a small table and split depth, so tasks fork on most nodes and compete for the same entries
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final ParallelPerft perft = new ParallelPerft(new LocklessPerftTable(10), pool, 1);
+    private final MirrorZobrist zobrist = new MirrorZobrist(new Random(7)::nextLong);
+
+    @AfterEach
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void perftFile() throws IOException {
+        long maxCount = 10_000L;// limit count so tests finish reasonably fast
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("perft.txt")) {
+            Scanner scanner = new Scanner(is);
+            while (scanner.hasNext()) {
+                String[] parts = scanner.nextLine().split(",");
+                State state = new State(zobrist);
+                new FenConverter().fromFen(state, parts[0]);
+                for (int depth = 1; depth < parts.length; depth++) {
+                    long count = Long.parseLong(parts[depth]);
+                    if (count > maxCount) {
+                        break;
+                    }
+                    String message = "perft" + depth + "(\"" + parts[0] + "\")";
+                    Assertions.assertEquals(count, perft.perft(state, depth), message);
+                    long divideSum = perft.divide(state, depth).stream().mapToLong(ParallelPerft.Divide::count).sum();
+                    Assertions.assertEquals(count, divideSum, "divide" + depth + "(\"" + parts[0] + "\")");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void kiwipete() {
+        State state = new State(zobrist);
+        new FenConverter().fromFen(state, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+        Assertions.assertEquals(4085603, perft.perft(state, 4));
+    }
+}
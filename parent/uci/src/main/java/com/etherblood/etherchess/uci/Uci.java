@@ -17,7 +17,10 @@ public class Uci implements Runnable {
 
     public static final int DEFAULT_HASH_MIB = 64;
     public static final int MIN_HASH_MIB = 0;
-    public static final int MAX_HASH_MIB = 512;
+    public static final int MAX_HASH_MIB = 256 * 1024;
+    public static final int DEFAULT_THREADS = 1;
+    public static final int MIN_THREADS = 1;
+    public static final int MAX_THREADS = 256;
 
     private final UciEngine engine;
     private final Supplier<String> in;
@@ -36,6 +39,11 @@ public class Uci implements Runnable {
         engine.setTableSize(mib);
     }
 
+    private void setThreads(int threads) {
+        assert botThread.get() == null;
+        engine.setThreads(threads);
+    }
+
     @Override
     public void run() {
         LOG.info("started");
@@ -59,8 +67,8 @@ public class Uci implements Runnable {
                         case "uci":
                             send("id name " + engine.getName());
                             send("id author " + engine.getAuthor());
-                            // TODO: re-add option support
-//                            send("option name Hash type spin default " + DEFAULT_HASH_MIB + " min " + MIN_HASH_MIB + " max " + MAX_HASH_MIB);
+                            send("option name Hash type spin default " + DEFAULT_HASH_MIB + " min " + MIN_HASH_MIB + " max " + MAX_HASH_MIB);
+                            send("option name Threads type spin default " + DEFAULT_THREADS + " min " + MIN_THREADS + " max " + MAX_THREADS);
                             send("uciok");
                             break;
                         case "isready":
@@ -115,7 +123,15 @@ public class Uci implements Runnable {
                     throw new IllegalStateException();
                 }
                 int mib = Integer.parseInt(it.next());
-                setTableSize(mib);
+                setTableSize(Math.max(MIN_HASH_MIB, Math.min(MAX_HASH_MIB, mib)));
+                break;
+            case "Threads":
+                token = it.next();
+                if (!"value".equals(token)) {
+                    throw new IllegalStateException();
+                }
+                int threads = Integer.parseInt(it.next());
+                setThreads(Math.max(MIN_THREADS, Math.min(MAX_THREADS, threads)));
                 break;
         }
     }
@@ -16,5 +16,7 @@ public interface UciEngine {
 
     void setTableSize(int mib);
 
+    void setThreads(int threads);
+
     void setDebug(boolean value);
 }
@@ -58,6 +58,8 @@ public class UciTest {
         toEngine.accept("uci");
         Assertions.assertEquals("id name " + name, fromEngine.get());
         Assertions.assertEquals("id author " + author, fromEngine.get());
+        Assertions.assertEquals("option name Hash type spin default 64 min 0 max 262144", fromEngine.get());
+        Assertions.assertEquals("option name Threads type spin default 1 min 1 max 256", fromEngine.get());
         Assertions.assertEquals("uciok", fromEngine.get());
 
         toEngine.accept("isready");